@@ -0,0 +1,36 @@
+package com.campsite.benchmark;
+
+import com.campsite.CampsiteReservationApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the application against an empty in-memory H2 database, once per fresh JVM.
+ * Compare it on the commits before and after a change of what is built at startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class ApplicationStartupBenchmark {
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public ConfigurableApplicationContext startApplication() {
+        context = new SpringApplicationBuilder(CampsiteReservationApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1", "--logging.level.root=WARN");
+        return context;
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopApplication() {
+        context.close();
+    }
+}
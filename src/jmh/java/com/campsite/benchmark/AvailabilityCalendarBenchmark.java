@@ -0,0 +1,23 @@
+package com.campsite.benchmark;
+
+import com.campsite.model.AvailabilityCalendar;
+import com.campsite.model.AvailabilityEncoding;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialized availability calendar for the default window, served from the cache while no reservation changes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class AvailabilityCalendarBenchmark {
+
+    @Benchmark
+    public AvailabilityCalendar findAvailabilityCalendar(ReservationServiceState state) {
+        return state.reservationService.findAvailabilityCalendar(null, null, null, AvailabilityEncoding.DATES);
+    }
+}
@@ -0,0 +1,141 @@
+package com.campsite.benchmark;
+
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.service.ReservationService;
+import com.campsite.service.SiteService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Availability calendars pushed to open server-sent event streams: the time from a booking that changes the calendar
+ * until every stream has received it, and the heap held per open stream, client and server side together.
+ * Run it with {@code -Dbenchmark.threads=1}, and compare with the polling {@link WebTierBenchmark#checkAvailability}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class AvailabilityStreamBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Streams {
+        @Param({"100", "1000", "5000"})
+        public int connections;
+
+        final AtomicLong receivedEvents = new AtomicLong();
+        final List<EventCounter> eventCounters = new ArrayList<>();
+        ReservationService reservationService;
+        LocalDate bookedDate;
+        String lastUnitReservation;
+
+        @Setup(Level.Trial)
+        public void openStreams(WebServerState state) throws InterruptedException {
+            // Book every unit of a date but one, so that booking and cancelling the last one changes the calendar
+            reservationService = state.context.getBean(ReservationService.class);
+            bookedDate = LocalDate.now().plusDays(10);
+            int units = state.context.getBean(OccupancyIndex.class).countUnits(state.context.getBean(SiteService.class).getDefaultSiteId());
+            for (int i = 1; i < units; i++) {
+                reservationService.createReservation(createReservationRequest());
+            }
+
+            long usedHeap = usedHeapAfterGc();
+            HttpRequest request = HttpRequest.newBuilder(state.availabilityStreamUri).build();
+            for (int i = 0; i < connections; i++) {
+                EventCounter eventCounter = new EventCounter();
+                eventCounters.add(eventCounter);
+                state.httpClient.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(eventCounter));
+            }
+            awaitEvents(connections);
+            System.out.println(connections + " open streams hold " + (usedHeapAfterGc() - usedHeap) / connections + " bytes of heap each");
+        }
+
+        @TearDown(Level.Trial)
+        public void closeStreams() {
+            eventCounters.forEach(EventCounter::cancel);
+        }
+
+        void toggleLastUnit() {
+            if (lastUnitReservation == null) {
+                lastUnitReservation = reservationService.createReservation(createReservationRequest());
+            } else {
+                reservationService.cancelReservation(lastUnitReservation);
+                lastUnitReservation = null;
+            }
+        }
+
+        void awaitEvents(long expectedEvents) throws InterruptedException {
+            while (receivedEvents.get() < expectedEvents) {
+                Thread.sleep(1);
+            }
+        }
+
+        private ReservationRequest createReservationRequest() {
+            ReservationRequest request = new ReservationRequest();
+            request.setFirstName("Bench");
+            request.setLastName("Mark");
+            request.setEmail("bench@campsite.com");
+            request.setCheckinDate(bookedDate);
+            request.setCheckoutDate(bookedDate.plusDays(1));
+            request.setNumOfGuests(2);
+            return request;
+        }
+
+        /**
+         * Reads a stream without blocking a thread, counting its events.
+         */
+        private final class EventCounter implements Flow.Subscriber<String> {
+            private volatile Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(String line) {
+                if (line.startsWith("data:")) {
+                    receivedEvents.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+
+            void cancel() {
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        }
+
+        private static long usedHeapAfterGc() {
+            System.gc();
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    @Benchmark
+    public long bookAndNotifyStreams(Streams streams) throws InterruptedException {
+        long expectedEvents = streams.receivedEvents.get() + streams.connections;
+        streams.toggleLastUnit();
+        streams.awaitEvents(expectedEvents);
+        return expectedEvents;
+    }
+}
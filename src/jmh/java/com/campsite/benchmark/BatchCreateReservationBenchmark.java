@@ -0,0 +1,102 @@
+package com.campsite.benchmark;
+
+import com.campsite.CampsiteReservationApplication;
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.controller.utils.SiteRequest;
+import com.campsite.model.BatchReservationResult;
+import com.campsite.service.SiteService;
+import com.campsite.service.impl.ReservationServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates {@link #BATCH_SIZE} reservations for the same dates on a site of as many units, either through one batch
+ * or through as many single creates. Scores are per reservation. The reservations are cancelled outside of the measurement.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class BatchCreateReservationBenchmark {
+    static final int BATCH_SIZE = 50;
+
+    @State(Scope.Benchmark)
+    public static class Application {
+        ConfigurableApplicationContext context;
+        ReservationServiceImpl reservationService;
+        SiteService siteService;
+
+        @Setup(Level.Trial)
+        public void startApplication() {
+            context = new SpringApplicationBuilder(CampsiteReservationApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run("--spring.datasource.url=jdbc:h2:mem:batch;DB_CLOSE_DELAY=-1", "--logging.level.root=WARN");
+            reservationService = context.getBean(ReservationServiceImpl.class);
+            siteService = context.getBean(SiteService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stopApplication() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        final List<ReservationRequest> reservationRequests = new ArrayList<>(BATCH_SIZE);
+        final List<String> externalIdentifiers = new ArrayList<>(BATCH_SIZE);
+
+        @Setup(Level.Trial)
+        public void prepareRequests(Application application) {
+            SiteRequest siteRequest = new SiteRequest();
+            siteRequest.setName("Batch");
+            siteRequest.setNumOfUnits(BATCH_SIZE);
+            Long siteId = application.siteService.createSite(siteRequest).getId();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                ReservationRequest reservationRequest = new ReservationRequest();
+                reservationRequest.setFirstName("Bench");
+                reservationRequest.setLastName("Mark");
+                reservationRequest.setEmail("bench@campsite.com");
+                reservationRequest.setSiteId(siteId);
+                reservationRequest.setCheckinDate(LocalDate.now().plusDays(1));
+                reservationRequest.setCheckoutDate(LocalDate.now().plusDays(3));
+                reservationRequest.setNumOfGuests(2);
+                reservationRequests.add(reservationRequest);
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void cancelReservations(Application application) {
+            externalIdentifiers.forEach(application.reservationService::cancelReservation);
+            externalIdentifiers.clear();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> createInBatch(Application application, Batch batch) {
+        for (BatchReservationResult result : application.reservationService.createReservations(batch.reservationRequests)) {
+            if (result.getExternalIdentifier() != null) {
+                batch.externalIdentifiers.add(result.getExternalIdentifier());
+            }
+        }
+        return batch.externalIdentifiers;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> createOneByOne(Application application, Batch batch) {
+        for (ReservationRequest reservationRequest : batch.reservationRequests) {
+            batch.externalIdentifiers.add(application.reservationService.createReservation(reservationRequest));
+        }
+        return batch.externalIdentifiers;
+    }
+}
@@ -0,0 +1,48 @@
+package com.campsite.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count, reporting throughput, latency percentiles (sample time)
+ * and allocation rate (GC profiler). Results are written as JSON under {@code target/}.
+ * <p>
+ * System properties:
+ * <ul>
+ *     <li>{@code benchmark.include}: regular expression of the benchmarks to run</li>
+ *     <li>{@code benchmark.threads}: comma separated thread counts</li>
+ *     <li>{@code benchmark.datasets}: comma separated numbers of seeded reservations</li>
+ *     <li>{@code benchmark.booking-modes}: comma separated booking modes, in-memory and/or optimistic</li>
+ *     <li>{@code benchmark.persistence-modes}: comma separated persistence modes, synchronous and/or write-behind</li>
+ *     <li>{@code benchmark.log-levels}: comma separated root log levels of the application</li>
+ * </ul>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String... args) throws RunnerException {
+        String include = System.getProperty("benchmark.include", "com.campsite.benchmark.*");
+        String[] datasets = System.getProperty("benchmark.datasets", "100,10000,1000000").split(",");
+        String[] bookingModes = System.getProperty("benchmark.booking-modes", "in-memory").split(",");
+        String[] persistenceModes = System.getProperty("benchmark.persistence-modes", "synchronous").split(",");
+        String[] logLevels = System.getProperty("benchmark.log-levels", "WARN").split(",");
+
+        for (String threads : System.getProperty("benchmark.threads", "1,4,16").split(",")) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .param("datasetSize", datasets)
+                    .param("bookingMode", bookingModes)
+                    .param("persistenceMode", persistenceModes)
+                    .param("logLevel", logLevels)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-result-" + threads.trim() + "-threads.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.campsite.benchmark;
+
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.exceptions.NoAvailabilityException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates a reservation in the slot of the calling thread and cancels it again outside of the measurement.
+ * Threads beyond {@link ReservationServiceState#SLOT_COUNT} share slots, so part of their calls are rejected.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class CreateReservationBenchmark {
+
+    @State(Scope.Thread)
+    public static class Booking {
+        ReservationRequest reservationRequest;
+        String externalIdentifier;
+
+        @Setup(Level.Trial)
+        public void prepareRequest(ThreadParams threadParams) {
+            reservationRequest = new ReservationRequest();
+            reservationRequest.setFirstName("Bench");
+            reservationRequest.setLastName("Mark");
+            reservationRequest.setEmail("bench@campsite.com");
+            reservationRequest.setCheckinDate(ReservationServiceState.slotStartDate(threadParams.getThreadIndex()));
+            reservationRequest.setCheckoutDate(reservationRequest.getCheckinDate().plusDays(2));
+            reservationRequest.setNumOfGuests(2);
+        }
+
+        @TearDown(Level.Invocation)
+        public void cancelReservation(ReservationServiceState state) {
+            if (externalIdentifier != null) {
+                state.reservationService.cancelReservation(externalIdentifier);
+                externalIdentifier = null;
+            }
+        }
+    }
+
+    @Benchmark
+    public String createReservation(ReservationServiceState state, Booking booking) {
+        try {
+            booking.externalIdentifier = state.reservationService.createReservation(booking.reservationRequest);
+        } catch (NoAvailabilityException e) {
+            booking.externalIdentifier = null;
+        }
+        return booking.externalIdentifier;
+    }
+}
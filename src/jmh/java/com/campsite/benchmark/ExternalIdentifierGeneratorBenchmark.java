@@ -0,0 +1,35 @@
+package com.campsite.benchmark;
+
+import com.campsite.common.generator.ExternalIdentifierGenerator;
+import com.campsite.common.generator.impl.ExternalIdentifierGeneratorImpl;
+import com.campsite.common.generator.impl.TimeOrderedExternalIdentifierGeneratorImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Identifier generation through one generator shared by all threads, as the service uses it:
+ * the random generator on its shared SecureRandom, and the lock-free time-ordered generator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExternalIdentifierGeneratorBenchmark {
+    @Param({"random", "time-ordered"})
+    public String generator;
+
+    private ExternalIdentifierGenerator externalIdentifierGenerator;
+
+    @Setup(Level.Trial)
+    public void createGenerator() {
+        externalIdentifierGenerator = "random".equals(generator) ? new ExternalIdentifierGeneratorImpl() : new TimeOrderedExternalIdentifierGeneratorImpl(0, false);
+    }
+
+    @Benchmark
+    public String getNext() {
+        return externalIdentifierGenerator.getNext();
+    }
+}
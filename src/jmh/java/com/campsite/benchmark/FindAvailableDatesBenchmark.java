@@ -0,0 +1,29 @@
+package com.campsite.benchmark;
+
+import com.campsite.model.DateRange;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Availability lookups for the default window (tomorrow plus one month), as dates and as ranges of dates.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class FindAvailableDatesBenchmark {
+
+    @Benchmark
+    public List<LocalDate> findAvailableDates(ReservationServiceState state) {
+        return state.reservationService.findAvailableDates(null, null, null);
+    }
+
+    @Benchmark
+    public List<DateRange> findAvailableRanges(ReservationServiceState state) {
+        return state.reservationService.findAvailableRanges(null, null, null);
+    }
+}
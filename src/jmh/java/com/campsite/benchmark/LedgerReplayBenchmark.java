@@ -0,0 +1,76 @@
+package com.campsite.benchmark;
+
+import com.campsite.CampsiteReservationApplication;
+import com.campsite.common.ledger.OccupancyState;
+import com.campsite.common.ledger.ReservationLedger;
+import com.campsite.service.SiteService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup replay of the reservation ledger: {@code eventCount} events appended after the last occupancy snapshot,
+ * replayed on top of it. Every seeded reservation is created, and every other one cancelled again, on a unit and in a
+ * window that rotate, so the occupancy keeps changing along the ledger. Run it with {@code -Dbenchmark.threads=1}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class LedgerReplayBenchmark {
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    @Param({"1000000", "10000000"})
+    public int eventCount;
+
+    private ConfigurableApplicationContext context;
+    private ReservationLedger reservationLedger;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(CampsiteReservationApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:ledger-benchmark;DB_CLOSE_DELAY=-1", "--logging.level.root=WARN",
+                        "--occupancy.ledger.enabled=true", "--occupancy.ledger.snapshot-interval=24h");
+        seedEvents(context.getBean(JdbcTemplate.class), context.getBean(SiteService.class).getDefaultSiteId());
+        reservationLedger = context.getBean(ReservationLedger.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<OccupancyState> loadOccupancy() {
+        return reservationLedger.loadOccupancy();
+    }
+
+    private void seedEvents(JdbcTemplate jdbcTemplate, long siteId) {
+        List<Long> unitIds = jdbcTemplate.queryForList("select id from units where site_id = ? order by id", Long.class, siteId);
+        LocalDate todayDate = LocalDate.now();
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < eventCount; i++) {
+            long reservationId = i / 3 * 2 + i % 3 / 2;
+            boolean cancelled = i % 3 == 1;
+            LocalDate checkinDate = todayDate.plusDays(1 + reservationId % 60);
+            batch.add(new Object[]{cancelled ? "CANCELLED" : "CREATED", reservationId, unitIds.get((int) (reservationId % unitIds.size())),
+                    Date.valueOf(checkinDate), Date.valueOf(checkinDate.plusDays(2))});
+            if (batch.size() == SEED_BATCH_SIZE || i == eventCount - 1) {
+                jdbcTemplate.batchUpdate("insert into reservation_events (event_type, reservation_id, unit_id, start_date, end_date) values (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.campsite.benchmark;
+
+import com.campsite.persistence.entity.ReservationEntity;
+import com.campsite.persistence.repository.ReservationRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Active reservations overlapping the default window, read straight from the reservations table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class OverlapQueryBenchmark {
+    private ReservationRepository reservationRepository;
+
+    @Setup(Level.Trial)
+    public void lookupRepository(ReservationServiceState state) {
+        reservationRepository = state.context.getBean(ReservationRepository.class);
+    }
+
+    @Benchmark
+    public List<ReservationEntity> findReservationsForGivenPeriod() {
+        return reservationRepository.findReservationsForGivenPeriod(LocalDate.now().plusDays(1), LocalDate.now().plusDays(1).plusMonths(1));
+    }
+}
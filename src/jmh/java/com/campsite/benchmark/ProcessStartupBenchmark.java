@@ -0,0 +1,96 @@
+package com.campsite.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to first request of the packaged application, started as a new process: the Spring Boot fat jar, and the
+ * {@code fast-startup} artifact with its class data sharing archive and lazy initialization. After the first request,
+ * prints the resident set size of the process (Linux only). Package both before running it:
+ * {@code mvn -Pfast-startup package}, then run with {@code -Dbenchmark.threads=1}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ProcessStartupBenchmark {
+    private static final int PORT = 19090;
+    private static final Path TARGET = Paths.get("target");
+
+    @Param({"fat-jar", "fast-startup"})
+    public String artifact;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final HttpRequest firstRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/api/v1/availabilities")).build();
+    private List<String> command;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void resolveCommand() throws IOException {
+        command = new ArrayList<>(List.of("java", "-Dserver.port=" + PORT, "-Dlogging.level.root=WARN"));
+        if ("fast-startup".equals(artifact)) {
+            Path directory = TARGET.resolve("fast-startup");
+            command.add("-XX:SharedArchiveFile=" + directory.resolve("application.jsa"));
+            command.add("-Dspring.profiles.active=fast-startup");
+            command.add("-jar");
+            command.add(findJar(directory).toString());
+        } else {
+            command.add("-jar");
+            command.add(findJar(TARGET).toString());
+        }
+    }
+
+    @Benchmark
+    public int startUntilFirstRequest() throws IOException, InterruptedException {
+        process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        while (true) {
+            try {
+                HttpResponse<Void> response = httpClient.send(firstRequest, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return response.statusCode();
+                }
+            } catch (ConnectException e) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with " + process.exitValue() + ": " + command);
+                }
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopProcess() throws IOException, InterruptedException {
+        Path status = Paths.get("/proc", String.valueOf(process.pid()), "status");
+        if (Files.exists(status)) {
+            try (Stream<String> lines = Files.lines(status)) {
+                lines.filter(line -> line.startsWith("VmRSS:")).forEach(line -> System.out.println(artifact + " after the first request, " + line));
+            }
+        }
+        process.destroy();
+        process.waitFor();
+    }
+
+    private static Path findJar(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No packaged application under " + directory + ", run mvn -Pfast-startup package first."));
+        }
+    }
+}
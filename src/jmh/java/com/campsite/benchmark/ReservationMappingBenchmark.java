@@ -0,0 +1,81 @@
+package com.campsite.benchmark;
+
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.model.Reservation;
+import com.campsite.persistence.entity.ReservationEntity;
+import com.campsite.service.mapper.ReservationMapper;
+import com.campsite.service.mapper.ReservationMapperImpl;
+import ma.glasnost.orika.BoundMapperFacade;
+import ma.glasnost.orika.impl.DefaultMapperFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Reservation mapping without the application: the read path through the compile-time generated mapper and through
+ * the runtime generated Orika mapper it replaced, and the create and partial-update paths of the generated mapper.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationMappingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Reservations {
+        final ReservationMapper reservationMapper = new ReservationMapperImpl();
+        final ReservationEntity reservationEntity = new ReservationEntity(1L, "Bench", "Mark", "bench@campsite.com", 1L, 1L,
+                LocalDate.now().plusDays(1), LocalDate.now().plusDays(3), "ACTIVE", 2, new Date(), "RSV1", 0L);
+        final ReservationRequest reservationRequest = new ReservationRequest();
+
+        @Setup(Level.Trial)
+        public void prepareRequest() {
+            reservationRequest.setFirstName("Bench");
+            reservationRequest.setLastName("Mark");
+            reservationRequest.setEmail("bench@campsite.com");
+            reservationRequest.setCheckinDate(LocalDate.now().plusDays(1));
+            reservationRequest.setCheckoutDate(LocalDate.now().plusDays(3));
+            reservationRequest.setNumOfGuests(2);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReadMapper {
+        @Param({"mapstruct", "orika"})
+        public String mapper;
+
+        Function<ReservationEntity, Reservation> toReservation;
+
+        @Setup(Level.Trial)
+        public void createMapper(Reservations reservations) {
+            if ("orika".equals(mapper)) {
+                BoundMapperFacade<ReservationEntity, Reservation> boundMapper = new DefaultMapperFactory.Builder().build()
+                        .getMapperFacade(ReservationEntity.class, Reservation.class);
+                toReservation = boundMapper::map;
+            } else {
+                toReservation = reservations.reservationMapper::toReservation;
+            }
+        }
+    }
+
+    @Benchmark
+    public Reservation toReservation(Reservations reservations, ReadMapper readMapper) {
+        return readMapper.toReservation.apply(reservations.reservationEntity);
+    }
+
+    @Benchmark
+    public ReservationEntity toReservationEntity(Reservations reservations) {
+        return reservations.reservationMapper.toReservationEntity(reservations.reservationRequest, 1L, 1L, "RSV1");
+    }
+
+    @Benchmark
+    public ReservationEntity updateReservationEntity(Reservations reservations) {
+        ReservationEntity reservationEntity = new ReservationEntity();
+        reservations.reservationMapper.updateReservationEntity(reservations.reservationRequest, reservationEntity);
+        return reservationEntity;
+    }
+}
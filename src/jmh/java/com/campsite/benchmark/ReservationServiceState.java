@@ -0,0 +1,88 @@
+package com.campsite.benchmark;
+
+import com.campsite.CampsiteReservationApplication;
+import com.campsite.persistence.entity.ReservationEntity;
+import com.campsite.service.SiteService;
+import com.campsite.service.impl.ReservationServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application in the given {@code bookingMode} and {@code persistenceMode} against an in-memory H2 database seeded with {@code datasetSize} reservations.
+ * <p>
+ * The seeded reservations are ACTIVE stays that already ended, plus one CANCELLED stay in every ten
+ * inside the bookable window, so they weigh on the table and its lookups without taking any bookable day.
+ * The days from tomorrow on are split into {@link #SLOT_COUNT} disjoint slots of {@link #SLOT_DAYS} days
+ * that the create and update benchmarks hand out per thread.
+ */
+@State(Scope.Benchmark)
+public class ReservationServiceState {
+    static final int SLOT_COUNT = 8;
+    static final int SLOT_DAYS = 4;
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    @Param({"100", "10000", "1000000"})
+    public int datasetSize;
+
+    @Param({"in-memory"})
+    public String bookingMode;
+
+    @Param({"synchronous"})
+    public String persistenceMode;
+
+    @Param({"WARN"})
+    public String logLevel;
+
+    ConfigurableApplicationContext context;
+    ReservationServiceImpl reservationService;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(CampsiteReservationApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1", "--logging.level.root=" + logLevel, "--booking.mode=" + bookingMode,
+                        "--persistence.mode=" + persistenceMode, "--persistence.write-behind.journal-directory=target/benchmark-journal");
+        seedReservations(context.getBean(JdbcTemplate.class), context.getBean(SiteService.class).getDefaultSiteId());
+        reservationService = context.getBean(ReservationServiceImpl.class);
+        reservationService.loadOccupancyIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    static LocalDate slotStartDate(int slot) {
+        return LocalDate.now().plusDays(1 + (long) (slot % SLOT_COUNT) * SLOT_DAYS);
+    }
+
+    static String seededExternalIdentifier(int index) {
+        return "SEED" + index;
+    }
+
+    private void seedReservations(JdbcTemplate jdbcTemplate, long siteId) {
+        long unitId = jdbcTemplate.queryForObject("select min(id) from units where site_id = ?", Long.class, siteId);
+        LocalDate todayDate = LocalDate.now();
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 1; i <= datasetSize; i++) {
+            boolean cancelled = i % 10 == 0;
+            LocalDate checkinDate = cancelled ? todayDate.plusDays(1 + i % 30) : todayDate.minusDays(4 + i % 3650);
+            batch.add(new Object[]{(long) i, siteId, unitId, "Seed", "Guest", "seed@campsite.com", Date.valueOf(checkinDate), Date.valueOf(checkinDate.plusDays(2)),
+                    cancelled ? "CANCELLED" : "ACTIVE", 4, seededExternalIdentifier(i)});
+            if (batch.size() == SEED_BATCH_SIZE || i == datasetSize) {
+                jdbcTemplate.batchUpdate("insert into reservations (id, site_id, unit_id, first_name, last_name, email, checkin_date, checkout_date, status, num_guests, external_identifier, version) "
+                        + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.execute("alter sequence reservation_seq restart with " + (datasetSize + 1 + ReservationEntity.ID_ALLOCATION_SIZE));
+    }
+}
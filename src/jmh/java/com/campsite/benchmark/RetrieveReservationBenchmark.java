@@ -0,0 +1,25 @@
+package com.campsite.benchmark;
+
+import com.campsite.model.Reservation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of random seeded reservations by external identifier.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class RetrieveReservationBenchmark {
+
+    @Benchmark
+    public Optional<Reservation> retrieveReservation(ReservationServiceState state) {
+        int index = 1 + ThreadLocalRandom.current().nextInt(state.datasetSize);
+        return state.reservationService.retrieveReservation(ReservationServiceState.seededExternalIdentifier(index));
+    }
+}
@@ -0,0 +1,76 @@
+package com.campsite.benchmark;
+
+import com.campsite.CampsiteReservationApplication;
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.controller.utils.SiteRequest;
+import com.campsite.exceptions.NoAvailabilityException;
+import com.campsite.model.DailyAvailability;
+import com.campsite.service.SiteService;
+import com.campsite.service.impl.ReservationServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Free units per day for the default window of a site with {@code numOfUnits} units, half of them booked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class SiteAvailabilityBenchmark {
+
+    @Param({"100", "10000"})
+    public int numOfUnits;
+
+    private ConfigurableApplicationContext context;
+    private ReservationServiceImpl reservationService;
+    private Long siteId;
+
+    @Setup(Level.Trial)
+    public void createSite() {
+        context = new SpringApplicationBuilder(CampsiteReservationApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:sites;DB_CLOSE_DELAY=-1", "--logging.level.root=WARN");
+        reservationService = context.getBean(ReservationServiceImpl.class);
+
+        SiteRequest siteRequest = new SiteRequest();
+        siteRequest.setName("Benchmark");
+        siteRequest.setNumOfUnits(numOfUnits);
+        siteId = context.getBean(SiteService.class).createSite(siteRequest).getId();
+
+        Random random = new Random(42);
+        for (int i = 0; i < numOfUnits / 2; i++) {
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setFirstName("Bench");
+            reservationRequest.setLastName("Mark");
+            reservationRequest.setEmail("bench@campsite.com");
+            reservationRequest.setSiteId(siteId);
+            reservationRequest.setCheckinDate(LocalDate.now().plusDays(1 + random.nextInt(28)));
+            reservationRequest.setCheckoutDate(reservationRequest.getCheckinDate().plusDays(1 + random.nextInt(3)));
+            try {
+                reservationService.createReservation(reservationRequest);
+            } catch (NoAvailabilityException e) {
+                // site full on those dates
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<DailyAvailability> findAvailableUnits() {
+        return reservationService.findAvailableUnits(siteId, null, null);
+    }
+}
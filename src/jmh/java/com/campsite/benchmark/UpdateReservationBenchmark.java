@@ -0,0 +1,69 @@
+package com.campsite.benchmark;
+
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.exceptions.NoAvailabilityException;
+import com.campsite.model.Reservation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the reservation owned by the calling thread back and forth by one day inside its slot.
+ * Threads beyond {@link ReservationServiceState#SLOT_COUNT} update the guest name of a seeded reservation instead.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class UpdateReservationBenchmark {
+
+    @State(Scope.Thread)
+    public static class Booking {
+        final ReservationRequest[] moves = new ReservationRequest[2];
+        String externalIdentifier;
+        int next;
+
+        @Setup(Level.Trial)
+        public void createReservation(ReservationServiceState state, ThreadParams threadParams) {
+            LocalDate slotStartDate = ReservationServiceState.slotStartDate(threadParams.getThreadIndex());
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = new ReservationRequest();
+                moves[i].setCheckinDate(slotStartDate.plusDays(i));
+                moves[i].setCheckoutDate(slotStartDate.plusDays(i + 1));
+                moves[i].setNumOfGuests(2);
+            }
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setFirstName("Bench");
+            reservationRequest.setLastName("Mark");
+            reservationRequest.setEmail("bench@campsite.com");
+            reservationRequest.setCheckinDate(moves[0].getCheckinDate());
+            reservationRequest.setCheckoutDate(moves[0].getCheckoutDate());
+            try {
+                externalIdentifier = state.reservationService.createReservation(reservationRequest);
+            } catch (NoAvailabilityException e) {
+                // slot taken by another thread: rename a seeded reservation of its own instead of moving dates
+                externalIdentifier = ReservationServiceState.seededExternalIdentifier(1 + threadParams.getThreadIndex() * 10 % state.datasetSize);
+                for (int i = 0; i < moves.length; i++) {
+                    moves[i] = new ReservationRequest();
+                    moves[i].setFirstName("Bench" + i);
+                    moves[i].setNumOfGuests(2);
+                }
+            }
+            next = 1;
+        }
+    }
+
+    @Benchmark
+    public Reservation updateReservation(ReservationServiceState state, Booking booking) {
+        ReservationRequest move = booking.moves[booking.next];
+        booking.next ^= 1;
+        try {
+            return state.reservationService.updateReservation(booking.externalIdentifier, move);
+        } catch (NoAvailabilityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.campsite.benchmark;
+
+import com.campsite.CampsiteReservationApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Boots the application with its web server on a random port, serving requests either on the Tomcat
+ * platform thread pool or on virtual threads, and shares one HTTP client between the benchmark threads.
+ */
+@State(Scope.Benchmark)
+public class WebServerState {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    ConfigurableApplicationContext context;
+    HttpClient httpClient;
+    URI availabilitiesUri;
+    URI reservationsUri;
+    URI availabilityStreamUri;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(CampsiteReservationApplication.class)
+                .run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:web-benchmark;DB_CLOSE_DELAY=-1", "--logging.level.root=WARN",
+                        "--web.virtual-threads.enabled=" + virtualThreads);
+        String baseUri = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort() + "/api/v1";
+        availabilitiesUri = URI.create(baseUri + "/availabilities");
+        reservationsUri = URI.create(baseUri + "/reservation/?limit=20");
+        availabilityStreamUri = URI.create(baseUri + "/availabilities/stream");
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+}
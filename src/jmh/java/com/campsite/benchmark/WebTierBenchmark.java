@@ -0,0 +1,39 @@
+package com.campsite.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained concurrent HTTP requests against the web tier, on platform threads and on virtual threads.
+ * Run with high thread counts (e.g. {@code -Dbenchmark.threads=16,64,256}) to compare throughput and the
+ * p99 of the sample time once the requests outnumber the Tomcat worker threads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-opens", "java.base/java.lang=ALL-UNNAMED"})
+public class WebTierBenchmark {
+
+    @Benchmark
+    public int checkAvailability(WebServerState state) throws IOException, InterruptedException {
+        return send(state, HttpRequest.newBuilder(state.availabilitiesUri).build());
+    }
+
+    @Benchmark
+    public int retrieveReservations(WebServerState state) throws IOException, InterruptedException {
+        return send(state, HttpRequest.newBuilder(state.reservationsUri).build());
+    }
+
+    private static int send(WebServerState state, HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = state.httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + " for " + request.uri());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,261 @@
+package com.campsite.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at open-model arrival times: Poisson arrivals at the rate of the traffic profile, each request sent at
+ * its intended time whether or not the previous ones were answered, so a slow service faces a growing backlog as it
+ * would in production instead of slowing the load down.
+ * <p>
+ * Response times are measured from the intended send time, which corrects the coordinated omission of a generator
+ * falling behind its schedule; service times are measured from the actual send time. Requests past
+ * {@code maxOutstanding} unanswered ones are not sent and count as errors. Only the requests intended after the warmup
+ * are recorded.
+ */
+class LoadGenerator {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String CREATED_PREFIX = "Successfully created reservation with ID : ";
+    private static final int HOT_DAYS = 3;
+    private static final int BOOKABLE_DAYS = 28;
+    private static final int RECENT_CREATES = 1000;
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final HttpClient httpClient;
+    private final String baseUri;
+    private final TrafficProfile profile;
+    private final double rate;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int maxOutstanding;
+    private final Random random;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final ConcurrentLinkedDeque<String> bookedIds = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<SentCreate> recentCreates = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder retryMismatches = new LongAdder();
+
+    LoadGenerator(HttpClient httpClient, String baseUri, TrafficProfile profile, double rate, Duration warmup, Duration duration,
+                  int maxOutstanding, long seed) {
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.profile = profile;
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.maxOutstanding = maxOutstanding;
+        this.random = new Random(seed);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Sends the requests of the warmup and of the measured run, then waits for the last answers.
+     *
+     * @return false if requests were still unanswered after the grace
+     */
+    boolean run(Duration grace) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long measuredNanos = startNanos + warmup.toNanos();
+        long endNanos = measuredNanos + duration.toNanos();
+        double intendedNanos = startNanos;
+        while (intendedNanos < endNanos) {
+            long intended = (long) intendedNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(profile.pick(random), intended, intended >= measuredNanos);
+            double currentRate = intended < measuredNanos ? rate : rate * profile.rateFactor((double) (intended - measuredNanos) / duration.toNanos());
+            intendedNanos += -Math.log(1 - random.nextDouble()) / currentRate * TimeUnit.SECONDS.toNanos(1);
+        }
+        long deadline = System.nanoTime() + grace.toNanos();
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return outstanding.get() == 0;
+    }
+
+    long retryMismatches() {
+        return retryMismatches.sum();
+    }
+
+    Map<Operation, OperationStats> stats() {
+        return stats;
+    }
+
+    void printReport(PrintStream out) {
+        out.printf("%-8s %9s %9s %9s %9s %10s %10s %10s %10s %10s %12s%n", "op", "count", "ok", "rejected", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        stats.forEach((operation, operationStats) -> {
+            Histogram responseTimes = operationStats.responseTimes;
+            out.printf("%-8s %9d %9d %9d %9d %10.2f %10.2f %10.2f %10.2f %10.2f %12.2f%n", operation.label(), responseTimes.getTotalCount(),
+                    operationStats.ok.sum(), operationStats.rejected.sum(), operationStats.errors.sum(),
+                    millis(responseTimes.getValueAtPercentile(50)), millis(responseTimes.getValueAtPercentile(90)),
+                    millis(responseTimes.getValueAtPercentile(99)), millis(responseTimes.getValueAtPercentile(99.9)),
+                    millis(responseTimes.getMaxValue()), millis(operationStats.serviceTimes.getValueAtPercentile(99)));
+        });
+        out.printf("Idempotent retries answered with another reservation: %d%n", retryMismatches());
+    }
+
+    private void send(Operation operation, long intended, boolean recorded) {
+        HttpRequest request;
+        String bookedId = null;
+        SentCreate create = null;
+        switch (operation) {
+            case CREATE:
+                create = new SentCreate(UUID.randomUUID().toString(), createBody());
+                request = createRequest(create);
+                break;
+            case RETRY:
+                create = recentCreates.peekLast();
+                if (create == null || create.externalIdentifier == null) {
+                    send(Operation.BROWSE, intended, recorded);
+                    return;
+                }
+                request = createRequest(create);
+                break;
+            case UPDATE:
+            case CANCEL:
+                bookedId = operation == Operation.CANCEL ? bookedIds.pollFirst() : bookedIds.pollLast();
+                if (bookedId == null) {
+                    send(Operation.BROWSE, intended, recorded);
+                    return;
+                }
+                request = operation == Operation.CANCEL
+                        ? HttpRequest.newBuilder(URI.create(baseUri + "/reservation/" + bookedId)).DELETE().build()
+                        : HttpRequest.newBuilder(URI.create(baseUri + "/reservation/" + bookedId))
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString(datesBody(stayStartDate(), 1 + random.nextInt(3))))
+                        .build();
+                break;
+            default:
+                LocalDate startDate = LocalDate.now().plusDays(1 + random.nextInt(BOOKABLE_DAYS - 7));
+                request = HttpRequest.newBuilder(URI.create(baseUri + "/availabilities?startDate=" + startDate + "&endDate=" + startDate.plusDays(7))).GET().build();
+        }
+        OperationStats operationStats = stats.get(operation);
+        if (outstanding.incrementAndGet() > maxOutstanding) {
+            outstanding.decrementAndGet();
+            if (recorded) {
+                operationStats.errors.increment();
+            }
+            return;
+        }
+        long sent = System.nanoTime();
+        String requeuedId = bookedId;
+        SentCreate sentCreate = create;
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+            long answered = System.nanoTime();
+            try {
+                int status = failure == null ? response.statusCode() : 599;
+                if (status < 300) {
+                    handleSuccess(operation, response.body(), requeuedId, sentCreate);
+                } else if (operation == Operation.UPDATE && status < 500) {
+                    // still booked, at its previous dates
+                    bookedIds.addFirst(requeuedId);
+                }
+                if (recorded) {
+                    operationStats.record(status, TimeUnit.NANOSECONDS.toMicros(answered - intended), TimeUnit.NANOSECONDS.toMicros(answered - sent));
+                }
+            } finally {
+                outstanding.decrementAndGet();
+            }
+        });
+    }
+
+    private void handleSuccess(Operation operation, String body, String bookedId, SentCreate create) {
+        switch (operation) {
+            case CREATE:
+                create.externalIdentifier = body.substring(body.indexOf(CREATED_PREFIX) + CREATED_PREFIX.length()).trim();
+                bookedIds.addLast(create.externalIdentifier);
+                recentCreates.addLast(create);
+                if (recentCreates.size() > RECENT_CREATES) {
+                    recentCreates.pollFirst();
+                }
+                break;
+            case RETRY:
+                if (!body.endsWith(create.externalIdentifier)) {
+                    retryMismatches.increment();
+                }
+                break;
+            case UPDATE:
+                bookedIds.addFirst(bookedId);
+                break;
+            default:
+        }
+    }
+
+    private HttpRequest createRequest(SentCreate create) {
+        return HttpRequest.newBuilder(URI.create(baseUri + "/reservation"))
+                .header("Content-Type", "application/json")
+                .header(IDEMPOTENCY_KEY, create.idempotencyKey)
+                .POST(HttpRequest.BodyPublishers.ofString(create.body))
+                .build();
+    }
+
+    private String createBody() {
+        String dates = datesBody(stayStartDate(), 1 + random.nextInt(3));
+        return "{\"firstName\":\"Load\",\"lastName\":\"Test\",\"email\":\"load@campsite.com\",\"numOfGuests\":2," + dates.substring(1);
+    }
+
+    private LocalDate stayStartDate() {
+        return LocalDate.now().plusDays(1 + (random.nextDouble() < profile.hotDateShare() ? random.nextInt(HOT_DAYS) : random.nextInt(BOOKABLE_DAYS)));
+    }
+
+    private static String datesBody(LocalDate checkinDate, int nights) {
+        return "{\"checkinDate\":\"" + checkinDate + "\",\"checkoutDate\":\"" + checkinDate.plusDays(nights) + "\"}";
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    static final class OperationStats {
+        final Histogram responseTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final Histogram serviceTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final LongAdder ok = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        void record(int status, long responseMicros, long serviceMicros) {
+            responseTimes.recordValue(Math.min(responseMicros, HIGHEST_TRACKABLE_MICROS));
+            serviceTimes.recordValue(Math.min(serviceMicros, HIGHEST_TRACKABLE_MICROS));
+            if (status < 300) {
+                ok.increment();
+            } else if (status < 500) {
+                rejected.increment();
+            } else {
+                errors.increment();
+            }
+        }
+    }
+
+    private static final class SentCreate {
+        private final String idempotencyKey;
+        private final String body;
+        private volatile String externalIdentifier;
+
+        private SentCreate(String idempotencyKey, String body) {
+            this.idempotencyKey = idempotencyKey;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.campsite.loadtest;
+
+import com.campsite.CampsiteReservationApplication;
+import com.campsite.common.store.ReservationStore;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the application with its web server on a random port against an in-memory H2 database, drives its endpoints
+ * with a {@link LoadGenerator}, prints the latencies of every operation and checks that no day of a unit was booked
+ * twice. Exits with 1 if the check fails, or requests were left unanswered.
+ * <p>
+ * System properties:
+ * <ul>
+ *     <li>{@code load-test.profile}: traffic profile, opening-day or steady</li>
+ *     <li>{@code load-test.rate}: base arrival rate, in requests per second</li>
+ *     <li>{@code load-test.warmup}: duration of the unrecorded warmup, at the base rate</li>
+ *     <li>{@code load-test.duration}: duration of the recorded run</li>
+ *     <li>{@code load-test.max-outstanding}: unanswered requests past which requests are not sent and count as errors</li>
+ *     <li>{@code load-test.seed}: seed of the arrivals and of the request mix</li>
+ *     <li>{@code load-test.booking-mode}, {@code load-test.persistence-mode}, {@code load-test.virtual-threads}: settings
+ *     of the application</li>
+ * </ul>
+ * The response time histograms are also written in HdrHistogram percentile format to {@code target/load-test/}.
+ */
+public class LoadTestRunner {
+    private static final String DOUBLE_BOOKINGS = "select count(*) from reservations r1 join reservations r2 on r1.unit_id = r2.unit_id and r1.id < r2.id "
+            + "where r1.status = 'ACTIVE' and r2.status = 'ACTIVE' and r1.checkin_date <= r2.checkout_date and r2.checkin_date <= r1.checkout_date";
+
+    public static void main(String... args) throws InterruptedException, IOException {
+        TrafficProfile profile = TrafficProfile.of(System.getProperty("load-test.profile", "opening-day"));
+        double rate = Double.parseDouble(System.getProperty("load-test.rate", "200"));
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("load-test.warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("load-test.duration", "60s"));
+        int maxOutstanding = Integer.parseInt(System.getProperty("load-test.max-outstanding", "5000"));
+        long seed = Long.parseLong(System.getProperty("load-test.seed", "42"));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(CampsiteReservationApplication.class)
+                .run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1", "--logging.level.root=WARN",
+                        "--booking.mode=" + System.getProperty("load-test.booking-mode", "in-memory"),
+                        "--persistence.mode=" + System.getProperty("load-test.persistence-mode", "synchronous"),
+                        "--persistence.write-behind.journal-directory=target/load-test/journal",
+                        "--web.virtual-threads.enabled=" + System.getProperty("load-test.virtual-threads", "false"));
+        boolean passed;
+        try {
+            String baseUri = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort() + "/api/v1";
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            LoadGenerator generator = new LoadGenerator(httpClient, baseUri, profile, rate, warmup, duration, maxOutstanding, seed);
+            System.out.printf("Running %s at %.0f requests/s for %s after a warmup of %s%n", profile, rate, duration, warmup);
+            boolean answered = generator.run(Duration.ofSeconds(30));
+            generator.printReport(System.out);
+            writeHistograms(generator.stats(), Paths.get("target", "load-test"));
+
+            context.getBean(ReservationStore.class).flush();
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            int doubleBookings = jdbcTemplate.queryForObject(DOUBLE_BOOKINGS, Integer.class);
+            List<Map<String, Object>> reservations = jdbcTemplate.queryForList("select status, count(*) as reservations from reservations group by status");
+            System.out.printf("Reservations by status: %s%n", reservations);
+            System.out.printf("Overlapping active reservations of a unit: %d%n", doubleBookings);
+            if (!answered) {
+                System.out.println("FAILED: requests were left unanswered.");
+            }
+            passed = answered && doubleBookings == 0 && generator.retryMismatches() == 0;
+            System.out.println(passed ? "PASSED" : "FAILED");
+        } finally {
+            context.close();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static void writeHistograms(Map<Operation, LoadGenerator.OperationStats> stats, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<Operation, LoadGenerator.OperationStats> entry : stats.entrySet()) {
+            try (PrintStream out = new PrintStream(directory.resolve(entry.getKey().label() + ".hgrm").toFile())) {
+                entry.getValue().responseTimes.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.campsite.loadtest;
+
+/**
+ * The requests of the load test.
+ */
+enum Operation {
+    /**
+     * {@code GET /availabilities} over a random window of the bookable month.
+     */
+    BROWSE,
+    /**
+     * {@code POST /reservation} with a new Idempotency-Key, on the hot dates for the share of the traffic profile.
+     */
+    CREATE,
+    /**
+     * {@code PATCH /reservation/{id}} moving a booked reservation to other dates.
+     */
+    UPDATE,
+    /**
+     * {@code DELETE /reservation/{id}} of a booked reservation.
+     */
+    CANCEL,
+    /**
+     * A recent create sent again with its Idempotency-Key, as by a client that lost the response.
+     */
+    RETRY;
+
+    String label() {
+        return name().toLowerCase();
+    }
+}
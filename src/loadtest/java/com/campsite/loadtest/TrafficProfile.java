@@ -0,0 +1,60 @@
+package com.campsite.loadtest;
+
+import java.util.Random;
+
+/**
+ * Mixes of requests and how their arrival rate changes over the measured run.
+ */
+enum TrafficProfile {
+    /**
+     * The season opens: five times the base rate for the first fifth of the run, most creates on the first days of
+     * the season, and clients retrying their creates.
+     */
+    OPENING_DAY(0.8, 5.0, 0.2, 40, 35, 8, 5, 12),
+    /**
+     * Mostly browsing at a constant rate, with bookings spread over the month.
+     */
+    STEADY(0.1, 1.0, 0.0, 80, 10, 5, 4, 1);
+
+    private final double hotDateShare;
+    private final double burstFactor;
+    private final double burstFraction;
+    private final int[] cumulativeWeights = new int[Operation.values().length];
+
+    TrafficProfile(double hotDateShare, double burstFactor, double burstFraction, int... weights) {
+        this.hotDateShare = hotDateShare;
+        this.burstFactor = burstFactor;
+        this.burstFraction = burstFraction;
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    static TrafficProfile of(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+
+    Operation pick(Random random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return Operation.values()[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @param elapsedFraction the elapsed share of the measured run, from 0 to 1
+     * @return the factor of the base arrival rate
+     */
+    double rateFactor(double elapsedFraction) {
+        return elapsedFraction < burstFraction ? burstFactor : 1.0;
+    }
+
+    double hotDateShare() {
+        return hotDateShare;
+    }
+}
@@ -0,0 +1,25 @@
+package com.campsite.common.admission;
+
+import com.campsite.controller.utils.ReservationRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Admission of the reservation creates, in front of the service: creates for dates that are already fully booked are
+ * turned away before they take a database connection, and the others run within a limit of concurrent creates, past
+ * which they wait in bounded queues per checkin date. Turned away creates are answered with 429 and a Retry-After.
+ */
+public interface AdmissionControl {
+
+    /**
+     * Runs the create once admitted.
+     *
+     * @param reservationRequest the requested reservation
+     * @param possibleRetry      true if the request may be the retry of a create that succeeded, to be answered with its
+     *                           reservation even though its dates are now booked
+     * @return the result of the create
+     * @throws com.campsite.exceptions.TooManyRequestsException if the dates are fully booked, their queue is full, or
+     *                                                          the create waited too long in it
+     */
+    <T> T admit(ReservationRequest reservationRequest, boolean possibleRetry, Supplier<T> create);
+}
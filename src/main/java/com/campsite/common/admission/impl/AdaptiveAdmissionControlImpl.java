@@ -0,0 +1,299 @@
+package com.campsite.common.admission.impl;
+
+import com.campsite.common.admission.AdmissionControl;
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.exceptions.TooManyRequestsException;
+import com.campsite.service.SiteService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admits the creates of this node within a concurrency limit that adapts to their latency: the limit grows while
+ * the smoothed latency stays within {@code admission.limit.tolerance} times the lowest latency seen, and shrinks
+ * by as much as half as the latency rises above it, as it does once the creates queue for the database. The lowest
+ * latency is measured again every {@value #BASELINE_SAMPLES} creates, so the limit follows a database that got slower
+ * for good.
+ * <p>
+ * Past the limit, creates wait in a queue per site and checkin date, of at most
+ * {@code admission.queue.capacity-per-date} creates, for at most {@code admission.queue.timeout}. Freed places go to
+ * the queues in turn, so a date sought by thousands does not hold back the creates for the other dates. A create for
+ * a full queue is turned away right away, with a Retry-After of the time its queue is expected to take.
+ * <p>
+ * Creates whose dates are fully booked in the occupancy index are turned away before queuing, with a Retry-After of
+ * {@code admission.sold-out.retry-after}, unless they take over a hold or may be the retry of a create that succeeded.
+ */
+@Component
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveAdmissionControlImpl implements AdmissionControl {
+    public static final String LIMIT_GAUGE = "admission.limit";
+    public static final String IN_FLIGHT_GAUGE = "admission.in-flight";
+    public static final String QUEUE_DEPTH_GAUGE = "admission.queue.depth";
+    public static final String QUEUE_WAIT_TIMER = "admission.queue.wait";
+    public static final String REJECTION_COUNTER = "admission.rejections";
+    private static final Logger logger = LogManager.getLogger(AdaptiveAdmissionControlImpl.class);
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final int BASELINE_SAMPLES = 1000;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Insertion ordered: the queue served last goes to the end
+    private final Map<QueueKey, Deque<Waiter>> queues = new LinkedHashMap<>();
+    private final OccupancyIndex occupancyIndex;
+    private final SiteService siteService;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final int queueCapacity;
+    private final Duration queueTimeout;
+    private final Duration soldOutRetryAfter;
+    private final Counter soldOutRejections;
+    private final Counter queueFullRejections;
+    private final Counter timeoutRejections;
+    private final Timer queueWait;
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int waiting;
+    private double smoothedLatencyNanos;
+    private double minLatencyNanos = Double.MAX_VALUE;
+    private long samples;
+
+    public AdaptiveAdmissionControlImpl(OccupancyIndex occupancyIndex, SiteService siteService, MeterRegistry meterRegistry,
+                                        @Value("${admission.limit.initial:20}") int initialLimit,
+                                        @Value("${admission.limit.min:4}") int minLimit,
+                                        @Value("${admission.limit.max:200}") int maxLimit,
+                                        @Value("${admission.limit.tolerance:2.0}") double tolerance,
+                                        @Value("${admission.queue.capacity-per-date:50}") int queueCapacity,
+                                        @Value("${admission.queue.timeout:2s}") Duration queueTimeout,
+                                        @Value("${admission.sold-out.retry-after:60s}") Duration soldOutRetryAfter) {
+        if (minLimit < 1 || maxLimit < minLimit || queueCapacity < 1 || tolerance < 1) {
+            throw new IllegalArgumentException("The admission limits must be 1 <= min <= max, the queue capacity at least 1 and the tolerance at least 1.");
+        }
+        this.occupancyIndex = occupancyIndex;
+        this.siteService = siteService;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.queueCapacity = queueCapacity;
+        this.queueTimeout = queueTimeout;
+        this.soldOutRetryAfter = soldOutRetryAfter;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        Gauge.builder(LIMIT_GAUGE, this, admission -> admission.limit)
+                .description("Concurrent reservation creates admitted")
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_GAUGE, this, admission -> admission.inFlight)
+                .description("Reservation creates running")
+                .register(meterRegistry);
+        Gauge.builder(QUEUE_DEPTH_GAUGE, this, admission -> admission.waiting)
+                .description("Reservation creates waiting to be admitted, over every date")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder(QUEUE_WAIT_TIMER)
+                .description("Time reservation creates waited to be admitted")
+                .register(meterRegistry);
+        this.soldOutRejections = rejectionCounter(meterRegistry, "sold-out");
+        this.queueFullRejections = rejectionCounter(meterRegistry, "queue-full");
+        this.timeoutRejections = rejectionCounter(meterRegistry, "timeout");
+    }
+
+    @Override
+    public <T> T admit(ReservationRequest reservationRequest, boolean possibleRetry, Supplier<T> create) {
+        Long siteId = reservationRequest.getSiteId() == null ? siteService.getDefaultSiteId() : reservationRequest.getSiteId();
+        if (siteId == null || reservationRequest.getCheckinDate() == null || reservationRequest.getCheckoutDate() == null) {
+            // Rejected by the service
+            return create.get();
+        }
+        if (!possibleRetry && reservationRequest.getHoldId() == null
+                && isSoldOut(siteId, reservationRequest.getUnitId(), reservationRequest.getCheckinDate(), reservationRequest.getCheckoutDate())) {
+            soldOutRejections.increment();
+            throw new TooManyRequestsException("There are no availabilities for the dates provided.", soldOutRetryAfter);
+        }
+        acquire(new QueueKey(siteId, reservationRequest.getCheckinDate()));
+        long startNanos = System.nanoTime();
+        try {
+            return create.get();
+        } finally {
+            release(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Only checks the stays the service would accept, the others are rejected by its validation.
+     */
+    private boolean isSoldOut(long siteId, Long unitId, LocalDate checkinDate, LocalDate checkoutDate) {
+        LocalDate todayDate = LocalDate.now();
+        long nights = ChronoUnit.DAYS.between(checkinDate, checkoutDate);
+        if (!checkinDate.isAfter(todayDate) || nights <= 0 || nights > 3 || !checkinDate.isBefore(todayDate.plusDays(2).plusMonths(1))
+                || occupancyIndex.countUnits(siteId) == 0) {
+            return false;
+        }
+        if (unitId == null) {
+            return !occupancyIndex.isAvailable(siteId, checkinDate, checkoutDate);
+        }
+        if (!occupancyIndex.hasUnit(siteId, unitId)) {
+            return false;
+        }
+        for (LocalDate day = checkinDate; !day.isAfter(checkoutDate); day = day.plusDays(1)) {
+            if (occupancyIndex.isOccupied(unitId, day)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void acquire(QueueKey key) {
+        lock.lock();
+        try {
+            if (waiting == 0 && inFlight < (int) limit) {
+                inFlight++;
+                return;
+            }
+            Deque<Waiter> queue = queues.computeIfAbsent(key, k -> new ArrayDeque<>());
+            if (queue.size() >= queueCapacity) {
+                queueFullRejections.increment();
+                throw new TooManyRequestsException("Too many reservations are being created for " + key.checkinDate + ", try again later.",
+                        estimateRetryAfter(queue.size()));
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            queue.addLast(waiter);
+            waiting++;
+            long startNanos = System.nanoTime();
+            long remainingNanos = queueTimeout.toNanos();
+            try {
+                while (!waiter.admitted && remainingNanos > 0) {
+                    remainingNanos = waiter.condition.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queueWait.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (!waiter.admitted) {
+                queue.remove(waiter);
+                if (queue.isEmpty()) {
+                    queues.remove(key);
+                }
+                waiting--;
+                timeoutRejections.increment();
+                throw new TooManyRequestsException("Too many reservations are being created for " + key.checkinDate + ", try again later.",
+                        estimateRetryAfter(queue.size()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            updateLimit(latencyNanos);
+            while (waiting > 0 && inFlight < (int) limit) {
+                admitNext();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admits the first create of the first queue, and moves the queue to the end.
+     */
+    private void admitNext() {
+        Iterator<Map.Entry<QueueKey, Deque<Waiter>>> iterator = queues.entrySet().iterator();
+        Map.Entry<QueueKey, Deque<Waiter>> next = iterator.next();
+        iterator.remove();
+        Waiter waiter = next.getValue().pollFirst();
+        if (!next.getValue().isEmpty()) {
+            queues.put(next.getKey(), next.getValue());
+        }
+        waiting--;
+        inFlight++;
+        waiter.admitted = true;
+        waiter.condition.signal();
+    }
+
+    private void updateLimit(long latencyNanos) {
+        smoothedLatencyNanos = samples == 0 ? latencyNanos : smoothedLatencyNanos + SMOOTHING * (latencyNanos - smoothedLatencyNanos);
+        if (++samples % BASELINE_SAMPLES == 0) {
+            minLatencyNanos = smoothedLatencyNanos;
+        }
+        minLatencyNanos = Math.max(1, Math.min(minLatencyNanos, latencyNanos));
+        if (waiting == 0 && inFlight < limit / 2) {
+            // The limit is not what holds the creates back, their latency says nothing of it
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * minLatencyNanos / smoothedLatencyNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        double previousLimit = limit;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit + SMOOTHING * (newLimit - limit)));
+        if ((int) limit != (int) previousLimit) {
+            logger.debug("Admission limit changed from {} to {}, smoothed latency {} ms", (int) previousLimit, (int) limit,
+                    smoothedLatencyNanos / 1_000_000);
+        }
+    }
+
+    /**
+     * The time for the creates of the queue, and this one, to run at the current limit and latency.
+     */
+    private Duration estimateRetryAfter(int queued) {
+        double nanos = (queued + 1) * smoothedLatencyNanos / limit;
+        return Duration.ofSeconds(Math.max(1, (long) Math.ceil(nanos / TimeUnit.SECONDS.toNanos(1))));
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(REJECTION_COUNTER)
+                .description("Reservation creates turned away by the admission control")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static final class QueueKey {
+        private final long siteId;
+        private final LocalDate checkinDate;
+
+        private QueueKey(long siteId, LocalDate checkinDate) {
+            this.siteId = siteId;
+            this.checkinDate = checkinDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof QueueKey)) {
+                return false;
+            }
+            QueueKey other = (QueueKey) o;
+            return siteId == other.siteId && checkinDate.equals(other.checkinDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(siteId, checkinDate);
+        }
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+        private boolean admitted;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.campsite.common.cache;
+
+import com.campsite.model.AvailabilityCalendar;
+import com.campsite.model.AvailabilityEncoding;
+import com.campsite.model.CacheStatistics;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of the serialized availability calendars of the most recently requested windows.
+ */
+public interface AvailabilityCache {
+
+    /**
+     * Returns the calendar of the window cached at the given occupancy version, or computes and caches it.
+     * Calendars cached at an older version are never returned.
+     */
+    AvailabilityCalendar get(long siteId, LocalDate startDate, LocalDate endDate, AvailabilityEncoding encoding, long version, Supplier<AvailabilityCalendar> calendarSupplier);
+
+    CacheStatistics statistics();
+}
@@ -0,0 +1,28 @@
+package com.campsite.common.cache;
+
+import com.campsite.model.CacheStatistics;
+import com.campsite.model.Reservation;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the active reservations, keyed by external identifier.
+ */
+public interface ReservationCache {
+
+    /**
+     * Returns the cached reservation, or loads it and caches it if it exists.
+     * Reservations that are not found are not cached.
+     */
+    Optional<Reservation> get(String externalIdentifier, Function<String, Reservation> loader);
+
+    /**
+     * Drops the reservation. If it is being loaded concurrently, waits for the load to complete and drops its result.
+     */
+    void invalidate(String externalIdentifier);
+
+    void invalidateAll();
+
+    CacheStatistics statistics();
+}
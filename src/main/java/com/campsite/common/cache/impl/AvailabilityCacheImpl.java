@@ -0,0 +1,54 @@
+package com.campsite.common.cache.impl;
+
+import com.campsite.common.cache.AvailabilityCache;
+import com.campsite.model.AvailabilityCalendar;
+import com.campsite.model.AvailabilityEncoding;
+import com.campsite.model.CacheStatistics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Caffeine backed cache holding the last calendar computed for each window. A calendar found at an older
+ * version is recomputed and replaced, keeping whichever of two racing calendars has the newer version.
+ */
+@Component
+public class AvailabilityCacheImpl implements AvailabilityCache {
+    private final boolean enabled;
+    private final Cache<String, AvailabilityCalendar> cache;
+
+    public AvailabilityCacheImpl(@Value("${availability.cache.enabled:true}") boolean enabled,
+                                 @Value("${availability.cache.maximum-size:256}") long maximumSize) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maximumSize : 0)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public AvailabilityCalendar get(long siteId, LocalDate startDate, LocalDate endDate, AvailabilityEncoding encoding, long version, Supplier<AvailabilityCalendar> calendarSupplier) {
+        if (!enabled) {
+            return calendarSupplier.get();
+        }
+        String key = siteId + "/" + startDate + "/" + endDate + "/" + encoding;
+        AvailabilityCalendar calendar = cache.getIfPresent(key);
+        if (calendar != null && calendar.getVersion() == version) {
+            return calendar;
+        }
+        AvailabilityCalendar computed = calendarSupplier.get();
+        cache.asMap().merge(key, computed, (cached, fresh) -> cached.getVersion() >= fresh.getVersion() ? cached : fresh);
+        return computed;
+    }
+
+    @Override
+    public CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(enabled, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate());
+    }
+}
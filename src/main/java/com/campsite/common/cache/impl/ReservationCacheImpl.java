@@ -0,0 +1,59 @@
+package com.campsite.common.cache.impl;
+
+import com.campsite.common.cache.ReservationCache;
+import com.campsite.model.CacheStatistics;
+import com.campsite.model.Reservation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Caffeine backed cache. Loads of the same key are computed once, and an invalidation waits for an in-flight load
+ * of its key, so a reservation read before a cancel commits is never cached after the cancel invalidated it.
+ */
+@Component
+public class ReservationCacheImpl implements ReservationCache {
+    private final boolean enabled;
+    private final Cache<String, Reservation> cache;
+
+    public ReservationCacheImpl(@Value("${reservation.cache.enabled:true}") boolean enabled,
+                                @Value("${reservation.cache.maximum-size:10000}") long maximumSize,
+                                @Value("${reservation.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maximumSize : 0)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<Reservation> get(String externalIdentifier, Function<String, Reservation> loader) {
+        if (!enabled) {
+            return Optional.ofNullable(loader.apply(externalIdentifier));
+        }
+        return Optional.ofNullable(cache.get(externalIdentifier, loader));
+    }
+
+    @Override
+    public void invalidate(String externalIdentifier) {
+        cache.invalidate(externalIdentifier);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(enabled, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,20 @@
+package com.campsite.common.cluster;
+
+import java.time.LocalDate;
+
+/**
+ * Tells the other nodes of a cluster which units, days and reservations a transaction changed, so that they bring
+ * their occupancy index and reservation cache up to date. Changes are recorded in the transaction that makes them,
+ * and only become visible to the other nodes if it commits.
+ */
+public interface OccupancyChangeLog {
+
+    /**
+     * Records a change of the days of the given period on the unit, and of the given reservation.
+     *
+     * @param startDate          first day that may have changed, or null if no day changed
+     * @param endDate            last day that may have changed, or null if no day changed
+     * @param externalIdentifier the reservation to drop from the caches, or null
+     */
+    void record(long siteId, long unitId, LocalDate startDate, LocalDate endDate, String externalIdentifier);
+}
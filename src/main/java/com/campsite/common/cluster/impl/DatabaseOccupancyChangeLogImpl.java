@@ -0,0 +1,193 @@
+package com.campsite.common.cluster.impl;
+
+import com.campsite.common.cache.ReservationCache;
+import com.campsite.common.cluster.OccupancyChangeLog;
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.persistence.entity.OccupancyChangeEntity;
+import com.campsite.persistence.repository.OccupancyChangeRepository;
+import com.campsite.persistence.repository.UnitDayClaimRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster mode: changes are rows of the occupancy_changes table, which every node polls for the changes of the others.
+ * <p>
+ * A change is not replayed: the days of its period are set in the occupancy index to what the unit_day_claims table
+ * says, so changes can be applied in any order and more than once. Rows are stamped by the database when inserted,
+ * not when committed, so every poll reads again the last {@code cluster.change-log.grace} before the latest row seen,
+ * skipping the rows it already applied. Transactions running longer than that may go unnoticed until the next restart.
+ * <p>
+ * Double bookings are prevented by the day claims alone, which this mode requires; the index only has to be
+ * close enough to the claims to pick units that are likely free.
+ * <p>
+ * The node id of the time-ordered external identifiers is leased in the cluster_nodes table for
+ * {@code cluster.node.lease}, and renewed on every poll: a node does not start with a node id leased by another.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class DatabaseOccupancyChangeLogImpl implements OccupancyChangeLog {
+    private static final Logger logger = LogManager.getLogger(DatabaseOccupancyChangeLogImpl.class);
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, Date> appliedChanges = new HashMap<>();
+    private final Duration pollInterval;
+    private final Duration grace;
+    private final Duration retention;
+    private final Integer identifierNodeId;
+    private final Duration nodeLease;
+    private ScheduledExecutorService poller;
+    private Date latestCreatedDate;
+    private Date lastPurgeDate;
+
+    @Autowired
+    private OccupancyChangeRepository occupancyChangeRepository;
+
+    @Autowired
+    private UnitDayClaimRepository unitDayClaimRepository;
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    @Autowired
+    private ReservationCache reservationCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public DatabaseOccupancyChangeLogImpl(@Value("${booking.mode:in-memory}") String bookingMode,
+                                          @Value("${cluster.change-log.poll-interval:500ms}") Duration pollInterval,
+                                          @Value("${cluster.change-log.grace:10s}") Duration grace,
+                                          @Value("${cluster.change-log.retention:1h}") Duration retention,
+                                          @Value("${reservation.external-identifier.generator:time-ordered}") String identifierGenerator,
+                                          @Value("${reservation.external-identifier.node-id:#{null}}") Integer identifierNodeId,
+                                          @Value("${cluster.node.lease:30s}") Duration nodeLease) {
+        if (!"optimistic".equals(bookingMode)) {
+            throw new IllegalStateException("cluster.enabled requires booking.mode=optimistic, the day claims are what keeps the nodes from double booking.");
+        }
+        this.pollInterval = pollInterval;
+        this.grace = grace;
+        this.retention = retention;
+        // Random identifiers do not depend on the node
+        this.identifierNodeId = "time-ordered".equals(identifierGenerator) ? identifierNodeId : null;
+        this.nodeLease = nodeLease;
+    }
+
+    /**
+     * Starts polling after the changes already in the table, which the occupancy index has been loaded with.
+     */
+    @PostConstruct
+    public void startPolling() {
+        if (identifierNodeId != null) {
+            leaseNodeId();
+        }
+        latestCreatedDate = Optional.ofNullable(occupancyChangeRepository.findLatestCreatedDate()).orElse(new Date(0));
+        lastPurgeDate = latestCreatedDate;
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-change-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Polling the occupancy changes of the other nodes as node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stopPolling() {
+        poller.shutdownNow();
+        if (identifierNodeId != null) {
+            jdbcTemplate.update("delete from cluster_nodes where node_id = ? and instance_id = ?", identifierNodeId, nodeId);
+        }
+    }
+
+    @Override
+    public void record(long siteId, long unitId, LocalDate startDate, LocalDate endDate, String externalIdentifier) {
+        occupancyChangeRepository.save(new OccupancyChangeEntity(null, nodeId, siteId, unitId, startDate, endDate, externalIdentifier, null));
+    }
+
+    /**
+     * Applies the changes of the other nodes committed since the previous poll. Only called by the poller thread.
+     */
+    void poll() {
+        try {
+            if (identifierNodeId != null && jdbcTemplate.update("update cluster_nodes set heartbeat = ? where node_id = ? and instance_id = ?",
+                    new Timestamp(System.currentTimeMillis()), identifierNodeId, nodeId) == 0) {
+                logger.error("The lease of node id {} was taken over by another node, their external identifiers may collide.", identifierNodeId);
+            }
+            Date since = new Date(latestCreatedDate.getTime() - grace.toMillis());
+            for (OccupancyChangeEntity change : occupancyChangeRepository.findChangesOfOtherNodesSince(since, nodeId)) {
+                if (appliedChanges.putIfAbsent(change.getId(), change.getCreatedOn()) == null) {
+                    apply(change);
+                }
+                if (change.getCreatedOn().after(latestCreatedDate)) {
+                    latestCreatedDate = change.getCreatedOn();
+                }
+            }
+            Date appliedBefore = new Date(latestCreatedDate.getTime() - grace.toMillis());
+            appliedChanges.values().removeIf(createdOn -> createdOn.before(appliedBefore));
+
+            // Every node purges, now and then, the changes that every other node has had the time to apply
+            if (latestCreatedDate.getTime() - lastPurgeDate.getTime() > retention.toMillis()) {
+                occupancyChangeRepository.deleteChangesBefore(new Date(latestCreatedDate.getTime() - retention.toMillis()));
+                lastPurgeDate = latestCreatedDate;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not poll the occupancy changes, retrying in {}.", pollInterval, e);
+        }
+    }
+
+    /**
+     * Leases the node id of the external identifiers, if no other running node holds it, or its lease has expired.
+     */
+    private void leaseNodeId() {
+        long now = System.currentTimeMillis();
+        int takenOver = jdbcTemplate.update("update cluster_nodes set instance_id = ?, heartbeat = ? where node_id = ? and heartbeat < ?",
+                nodeId, new Timestamp(now), identifierNodeId, new Timestamp(now - nodeLease.toMillis()));
+        if (takenOver > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("insert into cluster_nodes (node_id, instance_id, heartbeat) values (?, ?, ?)", identifierNodeId, nodeId, new Timestamp(now));
+        } catch (DuplicateKeyException e) {
+            throw new IllegalStateException("The node id " + identifierNodeId + " is held by another running node, "
+                    + "reservation.external-identifier.node-id must be unique among the running nodes.", e);
+        }
+    }
+
+    private void apply(OccupancyChangeEntity change) {
+        long unitId = change.getUnitId();
+        if (!occupancyIndex.hasUnit(change.getSiteId(), unitId)) {
+            occupancyIndex.registerUnit(change.getSiteId(), unitId);
+        }
+        if (change.getStartDate() != null) {
+            LocalDate todayDate = LocalDate.now();
+            LocalDate startDate = change.getStartDate().isBefore(todayDate) ? todayDate : change.getStartDate();
+            Set<LocalDate> claimedDates = new HashSet<>(unitDayClaimRepository.findClaimedDates(unitId, startDate, change.getEndDate()));
+            for (LocalDate date = startDate; !date.isAfter(change.getEndDate()); date = date.plusDays(1)) {
+                boolean claimed = claimedDates.contains(date);
+                if (claimed && !occupancyIndex.isOccupied(unitId, date)) {
+                    occupancyIndex.claim(unitId, date, date);
+                } else if (!claimed && occupancyIndex.isOccupied(unitId, date)) {
+                    occupancyIndex.release(unitId, date, date);
+                }
+            }
+        }
+        if (change.getExternalIdentifier() != null) {
+            reservationCache.invalidate(change.getExternalIdentifier());
+        }
+    }
+}
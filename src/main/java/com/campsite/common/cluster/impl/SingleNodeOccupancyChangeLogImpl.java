@@ -0,0 +1,19 @@
+package com.campsite.common.cluster.impl;
+
+import com.campsite.common.cluster.OccupancyChangeLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * A single node has no one to tell, its own index and caches are updated by the services.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "false", matchIfMissing = true)
+public class SingleNodeOccupancyChangeLogImpl implements OccupancyChangeLog {
+
+    @Override
+    public void record(long siteId, long unitId, LocalDate startDate, LocalDate endDate, String externalIdentifier) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.campsite.common.concurrent;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in mode, enabled by {@code web.virtual-threads.enabled=true}, serving every request on its own virtual thread
+ * instead of the Tomcat worker pool, including the asynchronous writes of streamed responses.
+ * A request blocked on JDBC then parks its virtual thread and frees the carrier thread for other requests.
+ * When the Java runtime has no virtual threads, the platform thread pool stays in place.
+ */
+@Configuration
+@ConditionalOnProperty(name = "web.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements WebServerFactoryCustomizer<TomcatServletWebServerFactory>, WebMvcConfigurer {
+    private static final Logger logger = LogManager.getLogger(VirtualThreadConfiguration.class);
+
+    private final Optional<ExecutorService> executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        if (executor.isEmpty()) {
+            logger.warn("Virtual threads are not available on Java " + Runtime.version() + ", requests are served on the platform thread pool.");
+            return;
+        }
+        factory.addProtocolHandlerCustomizers(protocolHandler -> protocolHandler.setExecutor(executor.get()));
+        logger.info("Requests are served on virtual threads.");
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        executor.ifPresent(virtualThreadExecutor -> configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor)));
+    }
+}
@@ -1,5 +1,9 @@
 package com.campsite.common.generator;
 
+/**
+ * Source of the external identifiers given to the reservations. The implementation is selected with
+ * {@code reservation.external-identifier.generator}: {@code time-ordered} (default) or {@code random}.
+ */
 public interface ExternalIdentifierGenerator {
     String getNext();
 }
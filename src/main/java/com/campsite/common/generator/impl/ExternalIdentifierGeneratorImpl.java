@@ -1,12 +1,19 @@
 package com.campsite.common.generator.impl;
 
 import com.campsite.common.generator.ExternalIdentifierGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
 
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
 import static java.lang.String.valueOf;
 
+/**
+ * Random identifiers: "RSV" followed by a signed random long. Unique only with high probability.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.external-identifier.generator", havingValue = "random")
 public class ExternalIdentifierGeneratorImpl implements ExternalIdentifierGenerator {
     private final String PREFIX = "RSV";
     private final SecureRandom sr;
@@ -0,0 +1,84 @@
+package com.campsite.common.generator.impl;
+
+import com.campsite.common.generator.ExternalIdentifierGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style identifiers: 41 bits of milliseconds since 2022-01-01, 10 bits of node id and a 12-bit sequence,
+ * written as "RSV" followed by 13 Crockford base32 characters. Identifiers of a node are unique and increasing,
+ * identifiers of different nodes never collide, and the fixed width keeps their text order equal to their time order.
+ * <p>
+ * The (milliseconds, sequence) pair lives in one atomic long advanced by compare-and-set, so callers never block.
+ * A sequence that overflows within a millisecond carries into the next millisecond, and a clock that goes back
+ * keeps counting from the last identifier, so generation never waits on the clock.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.external-identifier.generator", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedExternalIdentifierGeneratorImpl implements ExternalIdentifierGenerator {
+    public static final int MAX_NODE_ID = 1023;
+    static final long EPOCH_MILLIS = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final String PREFIX = "RSV";
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long node;
+    private final LongSupplier clock;
+    private final AtomicLong lastTick = new AtomicLong();
+
+    /**
+     * @param nodeId the node id, 0 if absent, which only a single node may leave out
+     */
+    @Autowired
+    public TimeOrderedExternalIdentifierGeneratorImpl(@Value("${reservation.external-identifier.node-id:#{null}}") Integer nodeId,
+                                                      @Value("${cluster.enabled:false}") boolean clusterEnabled) {
+        this(requireNodeId(nodeId, clusterEnabled), System::currentTimeMillis);
+    }
+
+    TimeOrderedExternalIdentifierGeneratorImpl(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("The node id must be between 0 and " + MAX_NODE_ID + ".");
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    private static int requireNodeId(Integer nodeId, boolean clusterEnabled) {
+        if (nodeId == null && clusterEnabled) {
+            throw new IllegalStateException("cluster.enabled requires reservation.external-identifier.node-id, unique among the running nodes.");
+        }
+        return nodeId == null ? 0 : nodeId;
+    }
+
+    @Override
+    public String getNext() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long last;
+        long tick;
+        do {
+            last = lastTick.get();
+            tick = Math.max(now, last + 1);
+        } while (!lastTick.compareAndSet(last, tick));
+        long millis = tick >>> SEQUENCE_BITS;
+        long sequence = tick & ((1L << SEQUENCE_BITS) - 1);
+        return encode(millis << (NODE_BITS + SEQUENCE_BITS) | node | sequence);
+    }
+
+    private static String encode(long value) {
+        char[] chars = new char[PREFIX.length() + ENCODED_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        for (int i = chars.length - 1; i >= PREFIX.length(); i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,26 @@
+package com.campsite.common.idempotency;
+
+import java.util.function.Supplier;
+
+/**
+ * Remembers the reservation created for every Idempotency-Key sent by the clients, so that a retried create returns
+ * the reservation of the first attempt instead of booking again. Keys are kept for a bounded retention.
+ */
+public interface IdempotencyKeyStore {
+
+    /**
+     * Returns the external identifier of the reservation created for the key, or runs the create if there is none.
+     * Concurrent calls with the same key share a single run of the create, and its outcome. A create that fails is
+     * not remembered, so the key can be retried.
+     *
+     * @param requestHash hash of the request, which must be the same for every use of the key
+     * @param create      creates the reservation, and {@link #record records} the key in its transaction
+     * @throws com.campsite.exceptions.InvalidParameterException if the key was used for a different request
+     */
+    String execute(String key, String requestHash, Supplier<String> create);
+
+    /**
+     * Records the reservation created for the key, in the current transaction.
+     */
+    void record(String key, String requestHash, String externalIdentifier);
+}
@@ -0,0 +1,138 @@
+package com.campsite.common.idempotency.impl;
+
+import com.campsite.common.idempotency.IdempotencyKeyStore;
+import com.campsite.exceptions.InvalidParameterException;
+import com.campsite.persistence.entity.IdempotencyKeyEntity;
+import com.campsite.persistence.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Keys are rows of the idempotency_keys table, inserted in the transaction of the reservation they created, so a key
+ * is remembered if and only if its reservation was committed, by whichever node. The most recent keys are also kept in
+ * a bounded cache, which answers the retries of this node without reading the table.
+ * <p>
+ * Concurrent creates with the same key on this node wait for the first one. On different nodes, both run and the
+ * second fails on the primary key, then returns the reservation of the first.
+ */
+@Component
+public class IdempotencyKeyStoreImpl implements IdempotencyKeyStore {
+    private static final Logger logger = LogManager.getLogger(IdempotencyKeyStoreImpl.class);
+    private final ConcurrentMap<String, CompletableFuture<IdempotencyKeyEntity>> executions = new ConcurrentHashMap<>();
+    private final Cache<String, IdempotencyKeyEntity> completedKeys;
+    private final Duration retention;
+    private final Duration purgeInterval;
+    private ScheduledExecutorService purger;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    public IdempotencyKeyStoreImpl(@Value("${idempotency.cache.maximum-size:10000}") long maximumSize,
+                                   @Value("${idempotency.retention:24h}") Duration retention,
+                                   @Value("${idempotency.purge-interval:10m}") Duration purgeInterval) {
+        this.completedKeys = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(retention)
+                .build();
+        this.retention = retention;
+        this.purgeInterval = purgeInterval;
+    }
+
+    @PostConstruct
+    public void startPurging() {
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-key-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purge, purgeInterval.toMillis(), purgeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopPurging() {
+        purger.shutdownNow();
+    }
+
+    @Override
+    public String execute(String key, String requestHash, Supplier<String> create) {
+        IdempotencyKeyEntity completedKey = completedKeys.getIfPresent(key);
+        if (completedKey != null) {
+            return replay(completedKey, requestHash);
+        }
+
+        // Only the first of the concurrent calls with the key runs, the others wait for its outcome
+        CompletableFuture<IdempotencyKeyEntity> execution = new CompletableFuture<>();
+        CompletableFuture<IdempotencyKeyEntity> runningExecution = executions.putIfAbsent(key, execution);
+        if (runningExecution != null) {
+            return replay(await(runningExecution), requestHash);
+        }
+        try {
+            IdempotencyKeyEntity idempotencyKey = idempotencyKeyRepository.findById(key).orElse(null);
+            if (idempotencyKey == null) {
+                try {
+                    idempotencyKey = new IdempotencyKeyEntity(key, requestHash, create.get(), null);
+                } catch (DataIntegrityViolationException e) {
+                    // The key may have been recorded by another node since it was looked up
+                    idempotencyKey = idempotencyKeyRepository.findById(key).orElseThrow(() -> e);
+                }
+            }
+            completedKeys.put(key, idempotencyKey);
+            execution.complete(idempotencyKey);
+            return replay(idempotencyKey, requestHash);
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            executions.remove(key, execution);
+        }
+    }
+
+    @Override
+    public void record(String key, String requestHash, String externalIdentifier) {
+        idempotencyKeyRepository.saveAndFlush(new IdempotencyKeyEntity(key, requestHash, externalIdentifier, null));
+    }
+
+    private String replay(IdempotencyKeyEntity idempotencyKey, String requestHash) {
+        if (!idempotencyKey.getRequestHash().equals(requestHash)) {
+            throw new InvalidParameterException("The Idempotency-Key " + idempotencyKey.getId() + " has already been used for a different reservation request.");
+        }
+        logger.debug("Idempotency-Key {} returns reservation {}", idempotencyKey.getId(), idempotencyKey.getExternalIdentifier());
+        return idempotencyKey.getExternalIdentifier();
+    }
+
+    private IdempotencyKeyEntity await(CompletableFuture<IdempotencyKeyEntity> execution) {
+        try {
+            return execution.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the keys older than the retention. Only called by the purger thread.
+     */
+    void purge() {
+        try {
+            int purged = idempotencyKeyRepository.deleteKeysCreatedBefore(new Date(System.currentTimeMillis() - retention.toMillis()));
+            logger.debug("Purged {} expired idempotency keys", purged);
+        } catch (RuntimeException e) {
+            logger.warn("Could not purge the expired idempotency keys, retrying in {}.", purgeInterval, e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.campsite.common.ledger;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The days occupied on every unit, from an origin day on, as the reservation events add them up.
+ * Days before the origin are dropped, which keeps a snapshot to the reservations that have not ended yet.
+ * Not thread safe.
+ */
+public class OccupancyState {
+    private static final int FORMAT = 1;
+    private final long originDay;
+    private final long lastEventId;
+    private final Map<Long, BitSet> occupiedDays;
+
+    private OccupancyState(long originDay, long lastEventId, Map<Long, BitSet> occupiedDays) {
+        this.originDay = originDay;
+        this.lastEventId = lastEventId;
+        this.occupiedDays = occupiedDays;
+    }
+
+    public static OccupancyState empty(LocalDate origin, long lastEventId) {
+        return new OccupancyState(origin.toEpochDay(), lastEventId, new HashMap<>());
+    }
+
+    public long getLastEventId() {
+        return lastEventId;
+    }
+
+    public void claim(long unitId, LocalDate startDate, LocalDate endDate) {
+        set(unitId, startDate, endDate, true);
+    }
+
+    public void release(long unitId, LocalDate startDate, LocalDate endDate) {
+        set(unitId, startDate, endDate, false);
+    }
+
+    /**
+     * Calls the consumer for every run of consecutive occupied days of every unit, from the given day on.
+     */
+    public void forEachOccupiedPeriod(LocalDate from, OccupiedPeriodConsumer consumer) {
+        int fromIndex = (int) Math.max(0, from.toEpochDay() - originDay);
+        occupiedDays.forEach((unitId, days) -> {
+            int start = days.nextSetBit(fromIndex);
+            while (start >= 0) {
+                int end = days.nextClearBit(start);
+                consumer.accept(unitId, LocalDate.ofEpochDay(originDay + start), LocalDate.ofEpochDay(originDay + end - 1));
+                start = days.nextSetBit(end);
+            }
+        });
+    }
+
+    /**
+     * Copy of the state moved to a later origin and event, dropping the days before the new origin.
+     */
+    public OccupancyState compact(LocalDate origin, long lastEventId) {
+        int shift = (int) Math.max(0, origin.toEpochDay() - originDay);
+        Map<Long, BitSet> compacted = new HashMap<>();
+        occupiedDays.forEach((unitId, days) -> {
+            BitSet remaining = days.get(shift, Math.max(shift, days.length()));
+            if (!remaining.isEmpty()) {
+                compacted.put(unitId, remaining);
+            }
+        });
+        return new OccupancyState(originDay + shift, lastEventId, compacted);
+    }
+
+    public byte[] serialize() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(FORMAT);
+            output.writeLong(originDay);
+            output.writeLong(lastEventId);
+            output.writeInt(occupiedDays.size());
+            for (Map.Entry<Long, BitSet> unit : occupiedDays.entrySet()) {
+                long[] words = unit.getValue().toLongArray();
+                output.writeLong(unit.getKey());
+                output.writeInt(words.length);
+                for (long word : words) {
+                    output.writeLong(word);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static OccupancyState deserialize(byte[] state) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(state))) {
+            int format = input.readInt();
+            if (format != FORMAT) {
+                throw new IllegalStateException("Unknown occupancy snapshot format " + format + ".");
+            }
+            long originDay = input.readLong();
+            long lastEventId = input.readLong();
+            int units = input.readInt();
+            Map<Long, BitSet> occupiedDays = new HashMap<>(units * 2);
+            for (int i = 0; i < units; i++) {
+                long unitId = input.readLong();
+                long[] words = new long[input.readInt()];
+                for (int j = 0; j < words.length; j++) {
+                    words[j] = input.readLong();
+                }
+                occupiedDays.put(unitId, BitSet.valueOf(words));
+            }
+            return new OccupancyState(originDay, lastEventId, occupiedDays);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void set(long unitId, LocalDate startDate, LocalDate endDate, boolean occupied) {
+        long fromIndex = Math.max(0, startDate.toEpochDay() - originDay);
+        long toIndex = endDate.toEpochDay() - originDay + 1;
+        if (toIndex <= fromIndex) {
+            return;
+        }
+        BitSet days = occupiedDays.computeIfAbsent(unitId, id -> new BitSet());
+        days.set((int) fromIndex, (int) toIndex, occupied);
+    }
+
+    @FunctionalInterface
+    public interface OccupiedPeriodConsumer {
+        void accept(long unitId, LocalDate startDate, LocalDate endDate);
+    }
+}
@@ -0,0 +1,29 @@
+package com.campsite.common.ledger;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Append-only ledger of the reservation events that change the occupied days, written in the transaction of the
+ * reservation, from which the occupancy index is rebuilt on startup instead of reading the reservations table.
+ * A reservation occupies every day from its checkin date to its checkout date, both inclusive.
+ */
+public interface ReservationLedger {
+
+    void recordCreated(long reservationId, long unitId, LocalDate checkinDate, LocalDate checkoutDate);
+
+    /**
+     * Records a reservation moved from the period [previousCheckinDate, previousCheckoutDate] to the new one.
+     */
+    void recordUpdated(long reservationId, long unitId, LocalDate previousCheckinDate, LocalDate previousCheckoutDate,
+                       LocalDate checkinDate, LocalDate checkoutDate);
+
+    void recordCancelled(long reservationId, long unitId, LocalDate checkinDate, LocalDate checkoutDate);
+
+    /**
+     * The occupancy of the latest snapshot with the events appended after it replayed on top.
+     *
+     * @return the occupancy, or empty if no ledger is kept and the reservations table has to be read instead
+     */
+    Optional<OccupancyState> loadOccupancy();
+}
@@ -0,0 +1,179 @@
+package com.campsite.common.ledger.impl;
+
+import com.campsite.common.ledger.OccupancyState;
+import com.campsite.common.ledger.ReservationLedger;
+import com.campsite.persistence.entity.OccupancySnapshotEntity;
+import com.campsite.persistence.entity.ReservationEventEntity;
+import com.campsite.persistence.repository.OccupancySnapshotRepository;
+import com.campsite.persistence.repository.ReservationEventRepository;
+import com.campsite.persistence.repository.ReservationRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Ledger kept in the reservation_events table, with the occupancy it adds up to snapshotted in occupancy_snapshots
+ * every {@code occupancy.ledger.snapshot-interval}, so that a startup only replays the events since the last snapshot.
+ * <p>
+ * Events are numbered when inserted, not when committed, so a snapshot only covers the events older than
+ * {@code occupancy.ledger.grace}, which every transaction is assumed to have committed or rolled back by then.
+ * The first startup with the ledger takes the initial snapshot from the reservations table.
+ */
+@Component
+@ConditionalOnProperty(name = "occupancy.ledger.enabled", havingValue = "true")
+public class DatabaseReservationLedgerImpl implements ReservationLedger {
+    private static final Logger logger = LogManager.getLogger(DatabaseReservationLedgerImpl.class);
+    private final TransactionTemplate transaction;
+    private final Duration snapshotInterval;
+    private final Duration grace;
+    private ScheduledExecutorService snapshotter;
+
+    @Autowired
+    private ReservationEventRepository reservationEventRepository;
+
+    @Autowired
+    private OccupancySnapshotRepository occupancySnapshotRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public DatabaseReservationLedgerImpl(PlatformTransactionManager transactionManager,
+                                         @Value("${occupancy.ledger.snapshot-interval:10m}") Duration snapshotInterval,
+                                         @Value("${occupancy.ledger.grace:10s}") Duration grace) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.snapshotInterval = snapshotInterval;
+        this.grace = grace;
+    }
+
+    @PostConstruct
+    public void startSnapshotting() {
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshot, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopSnapshotting() {
+        snapshotter.shutdownNow();
+    }
+
+    @Override
+    public void recordCreated(long reservationId, long unitId, LocalDate checkinDate, LocalDate checkoutDate) {
+        reservationEventRepository.save(new ReservationEventEntity(null, ReservationEventEntity.CREATED, reservationId, unitId, checkinDate, checkoutDate, null, null, null));
+    }
+
+    @Override
+    public void recordUpdated(long reservationId, long unitId, LocalDate previousCheckinDate, LocalDate previousCheckoutDate,
+                              LocalDate checkinDate, LocalDate checkoutDate) {
+        reservationEventRepository.save(new ReservationEventEntity(null, ReservationEventEntity.UPDATED, reservationId, unitId, checkinDate, checkoutDate,
+                previousCheckinDate, previousCheckoutDate, null));
+    }
+
+    @Override
+    public void recordCancelled(long reservationId, long unitId, LocalDate checkinDate, LocalDate checkoutDate) {
+        reservationEventRepository.save(new ReservationEventEntity(null, ReservationEventEntity.CANCELLED, reservationId, unitId, checkinDate, checkoutDate, null, null, null));
+    }
+
+    @Override
+    public Optional<OccupancyState> loadOccupancy() {
+        return Optional.ofNullable(transaction.execute(status -> {
+            long lastEventId = Optional.ofNullable(reservationEventRepository.findLastEventId()).orElse(0L);
+            OccupancySnapshotEntity snapshot = occupancySnapshotRepository.findFirstByOrderByLastEventIdDesc();
+            if (snapshot == null) {
+                return takeInitialSnapshot(lastEventId);
+            }
+            long startTime = System.nanoTime();
+            OccupancyState occupancy = replay(OccupancyState.deserialize(snapshot.getState()), lastEventId);
+            logger.info("Replayed the events {} to {} on the occupancy snapshot in {} ms.", snapshot.getLastEventId() + 1, lastEventId,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return occupancy;
+        }));
+    }
+
+    /**
+     * Snapshots the occupancy after the events old enough to be committed. Only called by the snapshotter thread.
+     */
+    void snapshot() {
+        try {
+            transaction.executeWithoutResult(status -> {
+                Long lastEventId = reservationEventRepository.findLastEventIdCreatedBefore(new Date(System.currentTimeMillis() - grace.toMillis()));
+                OccupancySnapshotEntity snapshot = occupancySnapshotRepository.findFirstByOrderByLastEventIdDesc();
+                if (lastEventId == null || snapshot == null || lastEventId <= snapshot.getLastEventId()) {
+                    return;
+                }
+                OccupancyState occupancy = replay(OccupancyState.deserialize(snapshot.getState()), lastEventId);
+                occupancySnapshotRepository.save(new OccupancySnapshotEntity(null, lastEventId, occupancy.serialize(), null));
+                occupancySnapshotRepository.deleteSnapshotsBefore(lastEventId);
+                logger.debug("Snapshotted the occupancy up to event {}", lastEventId);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not snapshot the occupancy, retrying in {}.", snapshotInterval, e);
+        }
+    }
+
+    private OccupancyState takeInitialSnapshot(long lastEventId) {
+        LocalDate todayDate = LocalDate.now();
+        OccupancyState occupancy = OccupancyState.empty(todayDate, lastEventId);
+        reservationRepository.findActiveReservationsEndingOnOrAfter(todayDate)
+                .forEach(reservation -> occupancy.claim(reservation.getUnitId(), reservation.getCheckinDate(), reservation.getCheckoutDate()));
+        occupancySnapshotRepository.save(new OccupancySnapshotEntity(null, lastEventId, occupancy.serialize(), null));
+        logger.info("Took the initial occupancy snapshot from the reservations table.");
+        return occupancy;
+    }
+
+    /**
+     * Applies the events following the last one of the occupancy up to the given one, in order.
+     *
+     * @return the occupancy after the events, without the days that have passed
+     */
+    private OccupancyState replay(OccupancyState occupancy, long lastEventId) {
+        try (Stream<ReservationEventEntity> events = reservationEventRepository.streamEvents(occupancy.getLastEventId(), lastEventId)) {
+            Iterator<ReservationEventEntity> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                ReservationEventEntity event = iterator.next();
+                switch (event.getEventType()) {
+                    case ReservationEventEntity.CREATED:
+                        occupancy.claim(event.getUnitId(), event.getStartDate(), event.getEndDate());
+                        break;
+                    case ReservationEventEntity.UPDATED:
+                        occupancy.release(event.getUnitId(), event.getPreviousStartDate(), event.getPreviousEndDate());
+                        occupancy.claim(event.getUnitId(), event.getStartDate(), event.getEndDate());
+                        break;
+                    case ReservationEventEntity.CANCELLED:
+                        occupancy.release(event.getUnitId(), event.getStartDate(), event.getEndDate());
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown reservation event " + event.getEventType() + " " + event.getId() + ".");
+                }
+                // keep the persistence context from growing with the ledger
+                entityManager.detach(event);
+            }
+        }
+        return occupancy.compact(LocalDate.now(), lastEventId);
+    }
+}
@@ -0,0 +1,35 @@
+package com.campsite.common.ledger.impl;
+
+import com.campsite.common.ledger.OccupancyState;
+import com.campsite.common.ledger.ReservationLedger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * No ledger: the occupancy index is loaded from the active reservations of the reservations table.
+ */
+@Component
+@ConditionalOnProperty(name = "occupancy.ledger.enabled", havingValue = "false", matchIfMissing = true)
+public class DisabledReservationLedgerImpl implements ReservationLedger {
+
+    @Override
+    public void recordCreated(long reservationId, long unitId, LocalDate checkinDate, LocalDate checkoutDate) {
+    }
+
+    @Override
+    public void recordUpdated(long reservationId, long unitId, LocalDate previousCheckinDate, LocalDate previousCheckoutDate,
+                              LocalDate checkinDate, LocalDate checkoutDate) {
+    }
+
+    @Override
+    public void recordCancelled(long reservationId, long unitId, LocalDate checkinDate, LocalDate checkoutDate) {
+    }
+
+    @Override
+    public Optional<OccupancyState> loadOccupancy() {
+        return Optional.empty();
+    }
+}
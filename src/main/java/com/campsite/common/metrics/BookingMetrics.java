@@ -0,0 +1,54 @@
+package com.campsite.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Meters of the booking pipeline:
+ * <ul>
+ *     <li>{@value #PHASE_TIMER}: time of every completed phase of an operation, tagged by operation and phase
+ *     (validation, claim, persist, map)</li>
+ *     <li>{@value #ERROR_COUNTER}: errors answered to the clients, tagged by exception</li>
+ * </ul>
+ * Percentiles are configured with {@code management.metrics.distribution.percentiles.booking.phase}.
+ */
+@Component
+public class BookingMetrics {
+    public static final String PHASE_TIMER = "booking.phase";
+    public static final String ERROR_COUNTER = "booking.errors";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> phaseTimers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    public BookingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample startPhase() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Records the time since the sample started as the given phase of the operation.
+     */
+    public void endPhase(Timer.Sample sample, String operation, String phase) {
+        sample.stop(phaseTimers.computeIfAbsent(operation + '.' + phase, key -> Timer.builder(PHASE_TIMER)
+                .description("Time spent in a phase of a booking operation")
+                .tag("operation", operation)
+                .tag("phase", phase)
+                .register(meterRegistry)));
+    }
+
+    public void countError(Exception exception) {
+        errorCounters.computeIfAbsent(exception.getClass(), type -> Counter.builder(ERROR_COUNTER)
+                .description("Booking errors answered to the clients")
+                .tag("exception", type.getSimpleName())
+                .register(meterRegistry)).increment();
+    }
+}
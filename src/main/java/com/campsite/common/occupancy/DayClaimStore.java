@@ -0,0 +1,32 @@
+package com.campsite.common.occupancy;
+
+import java.time.LocalDate;
+
+/**
+ * Durable claims of the days taken by the reservations, per unit, written in the transaction of the reservation.
+ * Unlike the {@link OccupancyIndex}, a claim store is shared by every node booking against the same database.
+ * A reservation claims every day from its checkin date to its checkout date, both inclusive.
+ */
+public interface DayClaimStore {
+
+    /**
+     * Claims every day of the given period on the unit for the reservation.
+     *
+     * @throws com.campsite.exceptions.DayClaimConflictException if another reservation holds a day of the period
+     */
+    void claim(long reservationId, long unitId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Claims the days of the given period that are not already held by the period [heldStartDate, heldEndDate].
+     *
+     * @throws com.campsite.exceptions.DayClaimConflictException if another reservation holds one of these days
+     */
+    void claim(long reservationId, long unitId, LocalDate startDate, LocalDate endDate, LocalDate heldStartDate, LocalDate heldEndDate);
+
+    void release(long reservationId);
+
+    /**
+     * Releases the days of the reservation that are not part of the period [keptStartDate, keptEndDate].
+     */
+    void release(long reservationId, LocalDate keptStartDate, LocalDate keptEndDate);
+}
@@ -0,0 +1,73 @@
+package com.campsite.common.occupancy;
+
+import java.time.LocalDate;
+
+/**
+ * In-memory index of the calendar days that are taken by active reservations, per unit, together with
+ * the number of occupied units per day for every site.
+ * A reservation occupies every day from its checkin date to its checkout date, both inclusive.
+ */
+public interface OccupancyIndex {
+
+    void registerUnit(long siteId, long unitId);
+
+    boolean hasUnit(long siteId, long unitId);
+
+    int countUnits(long siteId);
+
+    int countFreeUnits(long siteId, LocalDate day);
+
+    /**
+     * Days of the period, given as epoch days, with at least one free unit of the site.
+     * The period must fit in the horizon of the index, which is at most 64 days.
+     *
+     * @return a mask whose bit i is set when day firstDay + i has a free unit
+     */
+    long freeDays(long siteId, long firstDay, long lastDay);
+
+    boolean isOccupied(long unitId, LocalDate day);
+
+    /**
+     * @return true if at least one unit of the site is free for the whole period
+     */
+    boolean isAvailable(long siteId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Claims the whole period on the first unit of the site that is free for all of it.
+     *
+     * @return the claimed unit, or null if no unit is free for the whole period
+     */
+    Long claimAnyUnit(long siteId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Claims every day of the given period on the unit, or none of them if any day is already taken.
+     *
+     * @return true if the period was claimed
+     */
+    boolean claim(long unitId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Claims the days of the given period that are not already held by the period [heldStartDate, heldEndDate].
+     *
+     * @return true if the missing days were claimed
+     */
+    boolean claim(long unitId, LocalDate startDate, LocalDate endDate, LocalDate heldStartDate, LocalDate heldEndDate);
+
+    void release(long unitId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Releases the days of the given period that are not part of the period [keptStartDate, keptEndDate].
+     */
+    void release(long unitId, LocalDate startDate, LocalDate endDate, LocalDate keptStartDate, LocalDate keptEndDate);
+
+    /**
+     * Forgets every site, unit and claimed day.
+     */
+    void clear();
+
+    /**
+     * Change counter, incremented after every change of the index. Anything derived from the index after
+     * reading a given version is up to date for as long as the version has not moved.
+     */
+    long version();
+}
@@ -0,0 +1,75 @@
+package com.campsite.common.occupancy.impl;
+
+import com.campsite.common.occupancy.DayClaimStore;
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.exceptions.DayClaimConflictException;
+import com.campsite.persistence.entity.UnitDayClaimEntity;
+import com.campsite.persistence.entity.UnitDayClaimId;
+import com.campsite.persistence.repository.UnitDayClaimRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.campsite.common.transaction.TransactionCallbacks.runAfterRollback;
+
+/**
+ * Optimistic booking mode: one row per claimed day of a unit, whose primary key makes a concurrent claim of the
+ * same day fail at the database, whichever node it comes from.
+ * <p>
+ * Days found claimed by another reservation are also taken in the occupancy index once the transaction rolls back,
+ * so that a retry picks another unit or reports the dates as unavailable. They stay taken in the index until it is
+ * reloaded, even if the other node cancels them.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.mode", havingValue = "optimistic")
+public class DatabaseDayClaimStoreImpl implements DayClaimStore {
+
+    @Autowired
+    private UnitDayClaimRepository unitDayClaimRepository;
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    @Override
+    public void claim(long reservationId, long unitId, LocalDate startDate, LocalDate endDate) {
+        claim(reservationId, unitId, startDate, endDate, null, null);
+    }
+
+    @Override
+    public void claim(long reservationId, long unitId, LocalDate startDate, LocalDate endDate, LocalDate heldStartDate, LocalDate heldEndDate) {
+        // 1. Fail before writing if a committed reservation already holds a day, and remember its days
+        List<LocalDate> claimedDates = unitDayClaimRepository.findDatesClaimedByOthers(unitId, startDate, endDate, reservationId);
+        if (!claimedDates.isEmpty()) {
+            runAfterRollback(() -> claimedDates.forEach(date -> occupancyIndex.claim(unitId, date, date)));
+            throw new DayClaimConflictException("Unit " + unitId + " is already booked on " + claimedDates + ".");
+        }
+
+        // 2. Claim the missing days, the primary key rejects the days claimed concurrently
+        List<UnitDayClaimEntity> claims = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (heldStartDate == null || date.isBefore(heldStartDate) || date.isAfter(heldEndDate)) {
+                claims.add(new UnitDayClaimEntity(new UnitDayClaimId(unitId, date), reservationId));
+            }
+        }
+        try {
+            unitDayClaimRepository.saveAllAndFlush(claims);
+        } catch (DataIntegrityViolationException e) {
+            throw new DayClaimConflictException("Unit " + unitId + " was booked concurrently between " + startDate + " and " + endDate + ".", e);
+        }
+    }
+
+    @Override
+    public void release(long reservationId) {
+        unitDayClaimRepository.deleteClaims(reservationId);
+    }
+
+    @Override
+    public void release(long reservationId, LocalDate keptStartDate, LocalDate keptEndDate) {
+        unitDayClaimRepository.deleteClaimsOutside(reservationId, keptStartDate, keptEndDate);
+    }
+}
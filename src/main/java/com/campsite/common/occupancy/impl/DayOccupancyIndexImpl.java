@@ -0,0 +1,317 @@
+package com.campsite.common.occupancy.impl;
+
+import com.campsite.common.occupancy.OccupancyIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rings of epoch-day slots covering the bookable window. The slot of a day holds that day's epoch day
+ * while it is occupied, so days that have gone by are simply overwritten when the window moves on.
+ * Every unit has its own ring of day slots, and every site a ring of packed (epoch day, occupied units) counters.
+ * <p>
+ * Every day slot has its own lock, shared by all units. Claims and releases lock the slots of their period
+ * in ascending day order, so requests for disjoint periods never wait on each other, while reads go straight to the slots.
+ * Only {@link ReentrantLock}s are used, which park a waiting virtual thread without pinning its carrier thread.
+ * The time spent waiting for a slot lock held by another request is recorded by the {@value #LOCK_WAIT_TIMER} timer.
+ */
+@Component
+public class DayOccupancyIndexImpl implements OccupancyIndex {
+    public static final String LOCK_WAIT_TIMER = "occupancy.lock.wait";
+    static final int HORIZON_DAYS = 64;
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final Unit[] NO_UNITS = new Unit[0];
+
+    private final ReentrantLock[] locks = new ReentrantLock[HORIZON_DAYS];
+    private final ReentrantLock registrationLock = new ReentrantLock();
+    private final Map<Long, Site> sites = new ConcurrentHashMap<>();
+    private final Map<Long, Unit> units = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final Timer lockWaitTimer;
+
+    public DayOccupancyIndexImpl(MeterRegistry meterRegistry) {
+        for (int i = 0; i < HORIZON_DAYS; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        lockWaitTimer = Timer.builder(LOCK_WAIT_TIMER)
+                .description("Time spent waiting for a day slot lock held by another request")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void registerUnit(long siteId, long unitId) {
+        registrationLock.lock();
+        try {
+            if (units.containsKey(unitId)) {
+                return;
+            }
+            Site site = sites.computeIfAbsent(siteId, id -> new Site());
+            Unit unit = new Unit(unitId, site);
+            Unit[] siteUnits = Arrays.copyOf(site.units, site.units.length + 1);
+            siteUnits[siteUnits.length - 1] = unit;
+            site.units = siteUnits;
+            units.put(unitId, unit);
+            version.incrementAndGet();
+        } finally {
+            registrationLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean hasUnit(long siteId, long unitId) {
+        Unit unit = units.get(unitId);
+        return unit != null && unit.site == sites.get(siteId);
+    }
+
+    @Override
+    public int countUnits(long siteId) {
+        Site site = sites.get(siteId);
+        return site == null ? 0 : site.units.length;
+    }
+
+    @Override
+    public int countFreeUnits(long siteId, LocalDate day) {
+        Site site = sites.get(siteId);
+        return site == null ? 0 : site.units.length - site.countOccupied(day.toEpochDay());
+    }
+
+    @Override
+    public long freeDays(long siteId, long firstDay, long lastDay) {
+        checkPeriod(firstDay, lastDay);
+        Site site = sites.get(siteId);
+        if (site == null) {
+            return 0;
+        }
+        int unitCount = site.units.length;
+        long freeDays = 0;
+        for (long day = firstDay; day <= lastDay; day++) {
+            if (site.countOccupied(day) < unitCount) {
+                freeDays |= 1L << (day - firstDay);
+            }
+        }
+        return freeDays;
+    }
+
+    @Override
+    public boolean isOccupied(long unitId, LocalDate day) {
+        return unit(unitId).isOccupied(day.toEpochDay());
+    }
+
+    @Override
+    public boolean isAvailable(long siteId, LocalDate startDate, LocalDate endDate) {
+        Site site = sites.get(siteId);
+        long first = startDate.toEpochDay();
+        long last = endDate.toEpochDay();
+        if (site == null || site.isFull(first, last)) {
+            return false;
+        }
+        for (Unit unit : site.units) {
+            if (unit.isFree(first, last, 1, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Long claimAnyUnit(long siteId, LocalDate startDate, LocalDate endDate) {
+        Site site = sites.get(siteId);
+        long first = startDate.toEpochDay();
+        long last = endDate.toEpochDay();
+        checkPeriod(first, last);
+        if (site == null || site.isFull(first, last)) {
+            return null;
+        }
+        lock(first, last);
+        try {
+            for (Unit unit : site.units) {
+                if (unit.isFree(first, last, 1, 0)) {
+                    unit.occupy(first, last, 1, 0);
+                    version.incrementAndGet();
+                    return unit.id;
+                }
+            }
+            return null;
+        } finally {
+            unlock(first, last);
+        }
+    }
+
+    @Override
+    public boolean claim(long unitId, LocalDate startDate, LocalDate endDate) {
+        return claim(unit(unitId), startDate.toEpochDay(), endDate.toEpochDay(), 1, 0);
+    }
+
+    @Override
+    public boolean claim(long unitId, LocalDate startDate, LocalDate endDate, LocalDate heldStartDate, LocalDate heldEndDate) {
+        return claim(unit(unitId), startDate.toEpochDay(), endDate.toEpochDay(), heldStartDate.toEpochDay(), heldEndDate.toEpochDay());
+    }
+
+    @Override
+    public void release(long unitId, LocalDate startDate, LocalDate endDate) {
+        release(unit(unitId), startDate.toEpochDay(), endDate.toEpochDay(), 1, 0);
+    }
+
+    @Override
+    public void release(long unitId, LocalDate startDate, LocalDate endDate, LocalDate keptStartDate, LocalDate keptEndDate) {
+        release(unit(unitId), startDate.toEpochDay(), endDate.toEpochDay(), keptStartDate.toEpochDay(), keptEndDate.toEpochDay());
+    }
+
+    @Override
+    public void clear() {
+        registrationLock.lock();
+        try {
+            units.clear();
+            sites.clear();
+            version.incrementAndGet();
+        } finally {
+            registrationLock.unlock();
+        }
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    private boolean claim(Unit unit, long first, long last, long heldFirst, long heldLast) {
+        checkPeriod(first, last);
+        lock(first, last);
+        try {
+            if (!unit.isFree(first, last, heldFirst, heldLast)) {
+                return false;
+            }
+            unit.occupy(first, last, heldFirst, heldLast);
+            version.incrementAndGet();
+            return true;
+        } finally {
+            unlock(first, last);
+        }
+    }
+
+    private void release(Unit unit, long first, long last, long keptFirst, long keptLast) {
+        checkPeriod(first, last);
+        lock(first, last);
+        try {
+            for (long day = first; day <= last; day++) {
+                if ((day < keptFirst || day > keptLast) && unit.slots.compareAndSet(slot(day), day, FREE)) {
+                    unit.site.addOccupied(day, -1);
+                }
+            }
+            version.incrementAndGet();
+        } finally {
+            unlock(first, last);
+        }
+    }
+
+    private Unit unit(long unitId) {
+        Unit unit = units.get(unitId);
+        if (unit == null) {
+            throw new IllegalArgumentException("Unit " + unitId + " is not registered in the occupancy index.");
+        }
+        return unit;
+    }
+
+    private void lock(long first, long last) {
+        for (long day = first; day <= last; day++) {
+            ReentrantLock lock = locks[slot(day)];
+            if (!lock.tryLock()) {
+                long waitStart = System.nanoTime();
+                lock.lock();
+                lockWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void unlock(long first, long last) {
+        for (long day = last; day >= first; day--) {
+            locks[slot(day)].unlock();
+        }
+    }
+
+    private static int slot(long day) {
+        return (int) Math.floorMod(day, (long) HORIZON_DAYS);
+    }
+
+    private static void checkPeriod(long first, long last) {
+        if (last - first >= HORIZON_DAYS) {
+            throw new IllegalArgumentException("The period exceeds the occupancy horizon of " + HORIZON_DAYS + " days.");
+        }
+    }
+
+    private static final class Site {
+        private final AtomicLongArray occupiedUnits = new AtomicLongArray(HORIZON_DAYS);
+        private volatile Unit[] units = NO_UNITS;
+
+        private int countOccupied(long day) {
+            long packed = occupiedUnits.get(slot(day));
+            return packed >>> COUNT_BITS == day ? (int) (packed & COUNT_MASK) : 0;
+        }
+
+        /**
+         * Only called with the lock of the day held.
+         */
+        private void addOccupied(long day, int delta) {
+            occupiedUnits.set(slot(day), day << COUNT_BITS | (countOccupied(day) + delta));
+        }
+
+        private boolean isFull(long first, long last) {
+            for (long day = first; day <= last; day++) {
+                if (countOccupied(day) >= units.length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Unit {
+        private final long id;
+        private final Site site;
+        private final AtomicLongArray slots = new AtomicLongArray(HORIZON_DAYS);
+
+        private Unit(long id, Site site) {
+            this.id = id;
+            this.site = site;
+            for (int i = 0; i < HORIZON_DAYS; i++) {
+                slots.set(i, FREE);
+            }
+        }
+
+        private boolean isOccupied(long day) {
+            return slots.get(slot(day)) == day;
+        }
+
+        private boolean isFree(long first, long last, long heldFirst, long heldLast) {
+            for (long day = first; day <= last; day++) {
+                if ((day < heldFirst || day > heldLast) && isOccupied(day)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Only called with the locks of the period held, after checking it is free.
+         */
+        private void occupy(long first, long last, long heldFirst, long heldLast) {
+            for (long day = first; day <= last; day++) {
+                if (day < heldFirst || day > heldLast) {
+                    slots.set(slot(day), day);
+                    site.addOccupied(day, 1);
+                }
+            }
+        }
+    }
+}
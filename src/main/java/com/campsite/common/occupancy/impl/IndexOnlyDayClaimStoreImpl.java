@@ -0,0 +1,31 @@
+package com.campsite.common.occupancy.impl;
+
+import com.campsite.common.occupancy.DayClaimStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * In-memory booking mode: the occupancy index of the node is the only arbiter of the days, nothing is written.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.mode", havingValue = "in-memory", matchIfMissing = true)
+public class IndexOnlyDayClaimStoreImpl implements DayClaimStore {
+
+    @Override
+    public void claim(long reservationId, long unitId, LocalDate startDate, LocalDate endDate) {
+    }
+
+    @Override
+    public void claim(long reservationId, long unitId, LocalDate startDate, LocalDate endDate, LocalDate heldStartDate, LocalDate heldEndDate) {
+    }
+
+    @Override
+    public void release(long reservationId) {
+    }
+
+    @Override
+    public void release(long reservationId, LocalDate keptStartDate, LocalDate keptEndDate) {
+    }
+}
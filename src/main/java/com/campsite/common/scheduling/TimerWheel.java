@@ -0,0 +1,150 @@
+package com.campsite.common.scheduling;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hashed timer wheel: one thread runs the tasks that are due, one tick at a time, so scheduling and cancelling cost
+ * the same whatever the number of pending tasks. A task runs on the first tick at or after its deadline, never before,
+ * and at most a tick late while the tasks of the tick keep up. Tasks run on the wheel thread and must be short.
+ * <p>
+ * Scheduled tasks are handed over to the wheel thread through a queue; the slots of the wheel are only ever touched
+ * by that thread. A task due further away than one turn of the wheel waits in its slot for the remaining turns.
+ */
+public class TimerWheel implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(TimerWheel.class);
+    private final long tickNanos;
+    private final int slotBits;
+    private final int mask;
+    private final Queue<Timeout>[] slots;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean stopped;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, Duration tick, int slotCount) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("The number of slots must be a power of two, not " + slotCount + ".");
+        }
+        this.tickNanos = tick.toNanos();
+        this.slotBits = Integer.numberOfTrailingZeros(slotCount);
+        this.mask = slotCount - 1;
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Runs the task once the delay has elapsed, unless it is cancelled first.
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        long deadline = System.nanoTime() - startTime + Math.max(0, delay.toNanos());
+        Timeout timeout = new Timeout(task, deadline);
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public void close() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            long tickDeadline = (tick + 1) * tickNanos;
+            long sleepNanos = tickDeadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            transferScheduled(tick);
+            expire(slots[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * Puts the newly scheduled tasks in the slot of the tick they are due at, or the current one if already due.
+     */
+    private void transferScheduled(long currentTick) {
+        for (Timeout timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            // the tick ending at or after the deadline
+            long dueTick = Math.max(currentTick, (timeout.deadline + tickNanos - 1) / tickNanos - 1);
+            timeout.remainingRounds = (dueTick - currentTick) >> slotBits;
+            slots[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout> slot) {
+        Iterator<Timeout> timeouts = slot.iterator();
+        while (timeouts.hasNext()) {
+            Timeout timeout = timeouts.next();
+            if (timeout.isCancelled()) {
+                timeouts.remove();
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                timeouts.remove();
+                if (timeout.state.compareAndSet(false, true)) {
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        logger.warn("Timer task failed.", e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A scheduled task, which runs or is cancelled, whichever comes first.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicBoolean state = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return true if the task will not run, false if it already ran or is running
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(false, true)) {
+                cancelled = true;
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
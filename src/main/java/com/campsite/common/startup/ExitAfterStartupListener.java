@@ -0,0 +1,25 @@
+package com.campsite.common.startup;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops the application as soon as it is ready, when {@code startup.exit-after-startup=true}. Used by the training run
+ * of the {@code fast-startup} build, which archives the classes loaded on startup when the JVM exits.
+ */
+@Component
+@ConditionalOnProperty(name = "startup.exit-after-startup", havingValue = "true")
+public class ExitAfterStartupListener implements ApplicationListener<ApplicationReadyEvent> {
+    private static final Logger logger = LogManager.getLogger(ExitAfterStartupListener.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        logger.info("Started, exiting as startup.exit-after-startup is set.");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,26 @@
+package com.campsite.common.startup;
+
+import com.campsite.common.cluster.OccupancyChangeLog;
+import com.campsite.common.idempotency.IdempotencyKeyStore;
+import com.campsite.common.stream.AvailabilityStreams;
+import com.campsite.service.ReservationService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The {@code fast-startup} profile initializes beans lazily, on first use, except the ones that load the occupancy
+ * index or run in the background. These are still created on startup, so that the first request does not pay for
+ * loading the index and no change of another node is missed.
+ */
+@Configuration
+@Profile("fast-startup")
+public class FastStartupConfiguration {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerBookingBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ReservationService.class, OccupancyChangeLog.class,
+                IdempotencyKeyStore.class, AvailabilityStreams.class);
+    }
+}
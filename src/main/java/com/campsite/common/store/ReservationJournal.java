@@ -0,0 +1,433 @@
+package com.campsite.common.store;
+
+import com.campsite.persistence.entity.ReservationEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of reservation states, in segment files named after the sequence of their first record.
+ * <p>
+ * Appends are written and forced to disk by a single writer thread: the appends queued while it forces the previous
+ * ones are written together and forced once, so concurrent appenders share the cost of the fsync. An append returns
+ * once its records are on disk.
+ * <p>
+ * Every record is framed by its length and CRC32. On opening, the records of the existing segments are read back in
+ * sequence order up to the first torn or corrupt one, which ends its segment, and new records go to a new segment.
+ * Segments without any record are deleted; their names still count, so sequences are never reused. Segments are also
+ * deleted once every record in them is no longer needed, see {@link #truncate(long)}.
+ * <p>
+ * A discard record cancels the records of its reservation that precede it, such as those of a transaction that did
+ * not commit after all.
+ */
+public class ReservationJournal implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ReservationJournal.class);
+    private static final String SEGMENT_PREFIX = "reservations-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int MAX_GROUP_SIZE = 1024;
+    private final Path directory;
+    private final long segmentSize;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final List<Record> recovered = new ArrayList<>();
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    // Guards the segments, held across the fsync of a group
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private final Thread writer;
+    private volatile boolean closed;
+    private long nextSequence = 1;
+
+    public ReservationJournal(String name, Path directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        recover();
+        segments.addLast(Segment.create(directory, nextSequence));
+        writer = new Thread(this::write, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * The records found on opening, in sequence order.
+     */
+    public List<Record> recoveredRecords() {
+        return Collections.unmodifiableList(recovered);
+    }
+
+    /**
+     * Appends the reservations, in order, and waits until they are on disk.
+     *
+     * @return the sequence of the first record, the others follow
+     * @throws UncheckedIOException if they could not be written, or the journal is closed
+     */
+    public long append(List<ReservationEntity> reservations) {
+        return append(new Append(reservations, false));
+    }
+
+    /**
+     * Appends discards of the reservations: on recovery, the records of a discarded reservation before its discard
+     * are to be ignored. Waits until they are on disk.
+     *
+     * @return the sequence of the first discard, the others follow
+     * @throws UncheckedIOException if they could not be written, or the journal is closed
+     */
+    public long discard(List<String> externalIdentifiers) {
+        List<ReservationEntity> reservations = new ArrayList<>(externalIdentifiers.size());
+        for (String externalIdentifier : externalIdentifiers) {
+            ReservationEntity reservation = new ReservationEntity();
+            reservation.setExternalIdentifier(externalIdentifier);
+            reservations.add(reservation);
+        }
+        return append(new Append(reservations, true));
+    }
+
+    private long append(Append append) {
+        appends.add(append);
+        if (closed) {
+            append.result.completeExceptionally(new IOException("The reservation journal is closed."));
+        }
+        try {
+            return append.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while appending to the reservation journal."));
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? new UncheckedIOException((IOException) e.getCause()) : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Deletes the segments holding only records before the given sequence, starting a new segment if the current one
+     * is among them.
+     */
+    public void truncate(long keptSequence) throws IOException {
+        segmentLock.lock();
+        try {
+            Segment current = segments.getLast();
+            if (current.lastSequence != 0 && current.lastSequence < keptSequence) {
+                segments.addLast(Segment.create(directory, current.lastSequence + 1));
+            }
+            while (segments.size() > 1 && segments.getFirst().lastSequence < keptSequence) {
+                segments.removeFirst().delete();
+            }
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOException failure = new IOException("The reservation journal is closed.");
+        appends.forEach(append -> append.result.completeExceptionally(failure));
+        segmentLock.lock();
+        try {
+            segments.forEach(Segment::closeQuietly);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the queued appends in groups, one fsync per group. Only run by the writer thread.
+     */
+    private void write() {
+        List<Append> group = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        while (!closed) {
+            try {
+                group.add(appends.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            appends.drainTo(group, MAX_GROUP_SIZE - 1);
+            try {
+                writeGroup(group, buffer);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Could not append to the reservation journal.", e);
+                group.forEach(append -> append.result.completeExceptionally(e instanceof IOException ? e : new IOException(e)));
+            }
+            group.clear();
+            buffer.reset();
+        }
+        IOException failure = new IOException("The reservation journal is closed.");
+        appends.forEach(append -> append.result.completeExceptionally(failure));
+    }
+
+    private void writeGroup(List<Append> group, ByteArrayOutputStream buffer) throws IOException {
+        segmentLock.lock();
+        try {
+            writeGroupLocked(group, buffer);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    private void writeGroupLocked(List<Append> group, ByteArrayOutputStream buffer) throws IOException {
+        long sequence = nextSequence;
+        for (Append append : group) {
+            for (ReservationEntity reservation : append.reservations) {
+                writeRecord(buffer, sequence++, reservation, append.discard);
+            }
+        }
+        Segment segment = segments.getLast();
+        try {
+            segment.write(ByteBuffer.wrap(buffer.toByteArray()), sequence - 1);
+        } catch (IOException e) {
+            // The failed records must not be read back on recovery: cut them off, or stop appending
+            if (!segment.cutBack()) {
+                closed = true;
+            }
+            throw e;
+        }
+        for (Append append : group) {
+            append.result.complete(nextSequence);
+            nextSequence += append.reservations.size();
+        }
+        if (segment.size >= segmentSize) {
+            segments.addLast(Segment.create(directory, nextSequence));
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX) && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(ReservationJournal::firstSequenceOf))
+                    .collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            // A segment emptied or never written still numbers the sequences after it
+            nextSequence = Math.max(nextSequence, firstSequenceOf(path));
+            Segment segment = Segment.open(path);
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                Record record;
+                while ((record = readRecord(input)) != null) {
+                    recovered.add(record);
+                    segment.lastSequence = record.sequence;
+                    nextSequence = Math.max(nextSequence, record.sequence + 1);
+                }
+            } catch (EOFException e) {
+                logger.warn("The reservation journal segment {} ends with a torn record, ignored.", path);
+            }
+            if (segment.lastSequence == 0) {
+                // Nothing to recover from it, and its name may be taken by the next segment
+                Files.delete(path);
+                continue;
+            }
+            segments.addLast(segment);
+        }
+        if (!recovered.isEmpty()) {
+            logger.info("Recovered {} records from the reservation journal.", recovered.size());
+        }
+    }
+
+    private static long firstSequenceOf(Path path) {
+        String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void writeRecord(ByteArrayOutputStream buffer, long sequence, ReservationEntity reservation, boolean discard) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+        DataOutputStream output = new DataOutputStream(payload);
+        output.writeLong(sequence);
+        output.writeBoolean(discard);
+        output.writeUTF(reservation.getExternalIdentifier());
+        if (!discard) {
+            writeReservation(output, reservation);
+        }
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        DataOutputStream frame = new DataOutputStream(buffer);
+        frame.writeInt(bytes.length);
+        frame.writeInt((int) crc.getValue());
+        frame.write(bytes);
+    }
+
+    private static void writeReservation(DataOutputStream output, ReservationEntity reservation) throws IOException {
+        output.writeLong(reservation.getId());
+        output.writeLong(reservation.getSiteId());
+        output.writeLong(reservation.getUnitId());
+        output.writeUTF(reservation.getFirstName());
+        output.writeUTF(reservation.getLastName());
+        output.writeUTF(reservation.getEmail());
+        output.writeInt(reservation.getNumOfGuests());
+        output.writeLong(reservation.getCheckinDate().toEpochDay());
+        output.writeLong(reservation.getCheckoutDate().toEpochDay());
+        output.writeUTF(reservation.getStatus());
+        output.writeLong(reservation.getVersion());
+        output.writeLong(reservation.getCreatedOn().getTime());
+    }
+
+    /**
+     * @return the next record, or null at the end of the segment
+     * @throws EOFException if the record is torn or corrupt
+     */
+    private static Record readRecord(DataInputStream input) throws IOException {
+        int length;
+        try {
+            length = input.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        int checksum = input.readInt();
+        if (length <= 0 || length > 1 << 20) {
+            throw new EOFException("Invalid record length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != checksum) {
+            throw new EOFException("Invalid record checksum");
+        }
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+        long sequence = payload.readLong();
+        boolean discard = payload.readBoolean();
+        ReservationEntity reservation = new ReservationEntity();
+        reservation.setExternalIdentifier(payload.readUTF());
+        if (discard) {
+            return new Record(sequence, reservation, true);
+        }
+        reservation.setId(payload.readLong());
+        reservation.setSiteId(payload.readLong());
+        reservation.setUnitId(payload.readLong());
+        reservation.setFirstName(payload.readUTF());
+        reservation.setLastName(payload.readUTF());
+        reservation.setEmail(payload.readUTF());
+        reservation.setNumOfGuests(payload.readInt());
+        reservation.setCheckinDate(LocalDate.ofEpochDay(payload.readLong()));
+        reservation.setCheckoutDate(LocalDate.ofEpochDay(payload.readLong()));
+        reservation.setStatus(payload.readUTF());
+        reservation.setVersion(payload.readLong());
+        reservation.setCreatedOn(new Date(payload.readLong()));
+        return new Record(sequence, reservation, false);
+    }
+
+    public static final class Record {
+        private final long sequence;
+        private final ReservationEntity reservation;
+        private final boolean discard;
+
+        private Record(long sequence, ReservationEntity reservation, boolean discard) {
+            this.sequence = sequence;
+            this.reservation = reservation;
+            this.discard = discard;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return the reservation, of which only the external identifier is set for a discard
+         */
+        public ReservationEntity getReservation() {
+            return reservation;
+        }
+
+        public boolean isDiscard() {
+            return discard;
+        }
+    }
+
+    private static final class Append {
+        private final List<ReservationEntity> reservations;
+        private final boolean discard;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private Append(List<ReservationEntity> reservations, boolean discard) {
+            this.reservations = reservations;
+            this.discard = discard;
+        }
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private FileChannel channel;
+        private long size;
+        private long lastSequence;
+
+        private Segment(Path path) {
+            this.path = path;
+        }
+
+        /**
+         * A recovered segment, only ever deleted.
+         */
+        static Segment open(Path path) throws IOException {
+            Segment segment = new Segment(path);
+            segment.size = Files.size(path);
+            return segment;
+        }
+
+        static Segment create(Path directory, long firstSequence) throws IOException {
+            Segment segment = new Segment(directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX)));
+            segment.channel = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return segment;
+        }
+
+        void write(ByteBuffer records, long lastSequence) throws IOException {
+            long written = size;
+            while (records.hasRemaining()) {
+                written += channel.write(records);
+            }
+            channel.force(false);
+            size = written;
+            this.lastSequence = lastSequence;
+        }
+
+        /**
+         * Cuts off what was written after the last complete write.
+         */
+        boolean cutBack() {
+            try {
+                channel.truncate(size);
+                channel.position(size);
+                channel.force(false);
+                return true;
+            } catch (IOException e) {
+                logger.error("Could not cut the reservation journal segment {} back to its last record, closing the journal.", path, e);
+                return false;
+            }
+        }
+
+        void delete() throws IOException {
+            closeQuietly();
+            Files.deleteIfExists(path);
+        }
+
+        void closeQuietly() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close the reservation journal segment {}.", path, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.campsite.common.store;
+
+import com.campsite.persistence.entity.ReservationEntity;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Where the reservations are read from and written to by their creates, updates and cancellations: the reservations
+ * table, either right away or behind a journal, as set by {@code persistence.mode}.
+ */
+public interface ReservationStore {
+
+    /**
+     * @return the active reservation, or null if there is none with the external identifier
+     */
+    ReservationEntity findActive(String externalIdentifier);
+
+    /**
+     * Writes the reservation as part of the current transaction, assigning its ID and version.
+     */
+    void save(ReservationEntity reservation);
+
+    void saveAll(List<ReservationEntity> reservations);
+
+    /**
+     * Runs a read, change and save of the reservation, in turn with the others of the same reservation if writes are
+     * not checked against its version in the table.
+     */
+    <T> T mutate(String externalIdentifier, Supplier<T> mutation);
+
+    /**
+     * Writes to the table every reservation saved so far.
+     */
+    void flush();
+}
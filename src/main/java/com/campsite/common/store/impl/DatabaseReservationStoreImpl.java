@@ -0,0 +1,49 @@
+package com.campsite.common.store.impl;
+
+import com.campsite.common.store.ReservationStore;
+import com.campsite.persistence.entity.ReservationEntity;
+import com.campsite.persistence.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Writes the reservations to the table in the transaction that changes them. Concurrent changes of a reservation are
+ * caught by its version.
+ */
+@Component
+@ConditionalOnProperty(name = "persistence.mode", havingValue = "synchronous", matchIfMissing = true)
+public class DatabaseReservationStoreImpl implements ReservationStore {
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Override
+    public ReservationEntity findActive(String externalIdentifier) {
+        return reservationRepository.findActiveReservationByExternalIdentifier(externalIdentifier);
+    }
+
+    @Override
+    public void save(ReservationEntity reservation) {
+        reservationRepository.saveAndFlush(reservation);
+    }
+
+    @Override
+    public void saveAll(List<ReservationEntity> reservations) {
+        reservationRepository.saveAll(reservations);
+        reservationRepository.flush();
+    }
+
+    @Override
+    public <T> T mutate(String externalIdentifier, Supplier<T> mutation) {
+        return mutation.get();
+    }
+
+    @Override
+    public void flush() {
+        // written already
+    }
+}
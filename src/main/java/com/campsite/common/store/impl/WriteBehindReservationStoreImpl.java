@@ -0,0 +1,487 @@
+package com.campsite.common.store.impl;
+
+import com.campsite.common.store.ReservationJournal;
+import com.campsite.common.store.ReservationStore;
+import com.campsite.common.transaction.TransactionRetryTemplate;
+import com.campsite.model.Status;
+import com.campsite.persistence.entity.ReservationEntity;
+import com.campsite.persistence.repository.ReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Writes the reservations to a local {@link ReservationJournal} right before their transaction commits, and to the
+ * table later: the transaction commits, and the request is answered, once the journal is on disk. A drainer thread
+ * writes the pending reservations every {@code persistence.write-behind.drain-interval}, only the latest state of
+ * each, as JDBC batches of updates, then inserts for the ones not in the table yet. The journal segments are deleted
+ * once their reservations are all in the table.
+ * <p>
+ * A batch rejected by the database, rather than failing to reach it, is written again one reservation at a time. A
+ * reservation rejected {@code persistence.write-behind.max-attempts} times in a row is set aside: appended to the
+ * journal in the {@code rejected} subdirectory, to be repaired by hand, and no longer written.
+ * <p>
+ * On startup the journal is replayed into the table before anything reads it, and {@link #flush()} drains the
+ * pending reservations, so the occupancy index is loaded from a complete table. The reservations are read back from
+ * memory while pending, but the listings and exports of the table only see them once drained.
+ * <p>
+ * The journal is local to the node, so this mode requires {@code booking.mode=in-memory}, on a single node. The rest of
+ * the transaction, such as the Idempotency-Key, is flushed before the journal is written, and the reservations only
+ * become pending once the transaction committed. Should the commit fail after all, their journal records are
+ * compensated before anything else is rolled back, such as the claims of their days: by the previous pending state of
+ * the reservation, or else by a discard.
+ */
+@Component
+@ConditionalOnProperty(name = "persistence.mode", havingValue = "write-behind")
+public class WriteBehindReservationStoreImpl implements ReservationStore {
+    public static final String DRAIN_FAILURE_COUNTER = "reservation.drain.failures";
+    public static final String SET_ASIDE_COUNTER = "reservation.drain.set-aside";
+    private static final Logger logger = LogManager.getLogger(WriteBehindReservationStoreImpl.class);
+    private static final int LOCK_STRIPES = 256;
+    private static final String UPDATE_RESERVATION = "update reservations set first_name = ?, last_name = ?, email = ?, checkin_date = ?, checkout_date = ?, "
+            + "status = ?, num_guests = ?, version = ? where external_identifier = ?";
+    private static final String INSERT_RESERVATION = "insert into reservations (id, first_name, last_name, email, checkin_date, checkout_date, status, num_guests, "
+            + "version, external_identifier, site_id, unit_id, created_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Held across transactions and journal writes: only ReentrantLocks, which do not pin the carrier of a virtual thread
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Map<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    // Times in a row the latest pending state of a reservation was rejected, only touched by the drain
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+    // First sequences of the appends whose transaction has not completed yet, kept in the journal like the pending ones
+    private final Set<Long> inDoubtSequences = new ConcurrentSkipListSet<>();
+    // Appends hold the read lock until their sequences are in doubt or pending, the journal is truncated under the write lock
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final Path journalDirectory;
+    private final DataSize segmentSize;
+    private final Duration drainInterval;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Counter drainFailures;
+    private final Counter setAside;
+    private ReservationJournal journal;
+    private ReservationJournal rejectedJournal;
+    private ScheduledExecutorService drainer;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionRetryTemplate transactionRetryTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public WriteBehindReservationStoreImpl(@Value("${booking.mode:in-memory}") String bookingMode,
+                                           @Value("${persistence.write-behind.journal-directory:journal}") String journalDirectory,
+                                           @Value("${persistence.write-behind.segment-size:16MB}") DataSize segmentSize,
+                                           @Value("${persistence.write-behind.drain-interval:50ms}") Duration drainInterval,
+                                           @Value("${persistence.write-behind.batch-size:500}") int batchSize,
+                                           @Value("${persistence.write-behind.max-attempts:5}") int maxAttempts,
+                                           MeterRegistry meterRegistry) {
+        if (!"in-memory".equals(bookingMode)) {
+            throw new IllegalStateException("persistence.mode=write-behind requires booking.mode=in-memory, the day claims of the other modes reference reservations in the table.");
+        }
+        Arrays.setAll(locks, i -> new ReentrantLock());
+        this.journalDirectory = Paths.get(journalDirectory);
+        this.segmentSize = segmentSize;
+        this.drainInterval = drainInterval;
+        this.batchSize = batchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.drainFailures = Counter.builder(DRAIN_FAILURE_COUNTER)
+                .description("Pending reservations the database rejected")
+                .register(meterRegistry);
+        this.setAside = Counter.builder(SET_ASIDE_COUNTER)
+                .description("Pending reservations set aside after being rejected too many times")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replays the journal into the table, then starts draining.
+     */
+    @PostConstruct
+    public void startDraining() throws IOException {
+        journal = new ReservationJournal("reservation-journal-writer", journalDirectory, segmentSize.toBytes());
+        rejectedJournal = new ReservationJournal("rejected-reservation-journal-writer", journalDirectory.resolve("rejected"), segmentSize.toBytes());
+        for (ReservationJournal.Record record : journal.recoveredRecords()) {
+            if (record.isDiscard()) {
+                pendingWrites.remove(record.getReservation().getExternalIdentifier());
+            } else {
+                pendingWrites.put(record.getReservation().getExternalIdentifier(), new PendingWrite(record.getReservation(), record.getSequence()));
+            }
+        }
+        drainPendingWrites();
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-drainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(this::drain, drainInterval.toMillis(), drainInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops draining and closes the journal, whose pending reservations are written on the next startup.
+     */
+    @PreDestroy
+    public void stopDraining() throws InterruptedException {
+        drainer.shutdown();
+        drainer.awaitTermination(10, TimeUnit.SECONDS);
+        drain();
+        journal.close();
+        rejectedJournal.close();
+    }
+
+    @Override
+    public ReservationEntity findActive(String externalIdentifier) {
+        PendingWrite pendingWrite = pendingWrites.get(externalIdentifier);
+        if (pendingWrite != null) {
+            return Status.ACTIVE.name().equals(pendingWrite.reservation.getStatus()) ? copy(pendingWrite.reservation) : null;
+        }
+        ReservationEntity reservation = reservationRepository.findActiveReservationByExternalIdentifier(externalIdentifier);
+        if (reservation != null) {
+            // changed and saved here, not by the persistence context
+            entityManager.detach(reservation);
+        }
+        return reservation;
+    }
+
+    @Override
+    public void save(ReservationEntity reservation) {
+        saveAll(Collections.singletonList(reservation));
+    }
+
+    @Override
+    public void saveAll(List<ReservationEntity> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        for (ReservationEntity reservation : reservations) {
+            if (reservation.getId() == null) {
+                reservation.setId((Long) session.getEntityPersister(null, reservation).getIdentifierGenerator().generate(session, reservation));
+                reservation.setCreatedOn(new Date());
+                reservation.setVersion(0L);
+            } else {
+                reservation.setVersion(reservation.getVersion() + 1);
+            }
+        }
+        List<ReservationEntity> copies = reservations.stream().map(WriteBehindReservationStoreImpl::copy).collect(Collectors.toList());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(copies, append(copies));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new JournaledWrite(copies));
+    }
+
+    @Override
+    public <T> T mutate(String externalIdentifier, Supplier<T> mutation) {
+        ReentrantLock lock = locks[Math.floorMod(externalIdentifier.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return mutation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        drain();
+    }
+
+    /**
+     * Writes the pending reservations to the table, logging the failures to retry them on the next run.
+     */
+    void drain() {
+        drainLock.lock();
+        try {
+            drainPendingWrites();
+        } catch (RuntimeException | IOException e) {
+            logger.warn("Could not write the pending reservations, retrying in {}.", drainInterval, e);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Journals the reservations, which stay in doubt until published or compensated.
+     *
+     * @return the sequence of the first record
+     */
+    private long append(List<ReservationEntity> reservations) {
+        journalLock.readLock().lock();
+        try {
+            long sequence = journal.append(reservations);
+            inDoubtSequences.add(sequence);
+            return sequence;
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Makes the journaled reservations pending, to be read back and drained.
+     */
+    private void publish(List<ReservationEntity> reservations, long firstSequence) {
+        journalLock.readLock().lock();
+        try {
+            long sequence = firstSequence;
+            for (ReservationEntity reservation : reservations) {
+                pendingWrites.put(reservation.getExternalIdentifier(), new PendingWrite(reservation, sequence++));
+            }
+            inDoubtSequences.remove(firstSequence);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Journals, after the records of reservations whose transaction did not commit, the state to recover instead: the
+     * pending one if any, or a discard when the table holds the last committed state.
+     */
+    private void compensate(List<ReservationEntity> reservations, long firstSequence) {
+        journalLock.readLock().lock();
+        try {
+            List<PendingWrite> previousWrites = new ArrayList<>();
+            List<String> discarded = new ArrayList<>();
+            for (ReservationEntity reservation : reservations) {
+                PendingWrite previousWrite = pendingWrites.get(reservation.getExternalIdentifier());
+                if (previousWrite != null) {
+                    previousWrites.add(previousWrite);
+                } else {
+                    discarded.add(reservation.getExternalIdentifier());
+                }
+            }
+            if (!previousWrites.isEmpty()) {
+                long sequence = journal.append(previousWrites.stream().map(previousWrite -> previousWrite.reservation).collect(Collectors.toList()));
+                for (PendingWrite previousWrite : previousWrites) {
+                    pendingWrites.replace(previousWrite.reservation.getExternalIdentifier(), previousWrite, new PendingWrite(previousWrite.reservation, sequence++));
+                }
+            }
+            if (!discarded.isEmpty()) {
+                journal.discard(discarded);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not compensate the journal records of {} reservations that were rolled back, they will be written on the next startup.",
+                    reservations.size(), e);
+        } finally {
+            inDoubtSequences.remove(firstSequence);
+            journalLock.readLock().unlock();
+        }
+    }
+
+    private void drainPendingWrites() throws IOException {
+        List<PendingWrite> drained = new ArrayList<>(pendingWrites.values());
+        for (int from = 0; from < drained.size(); from += batchSize) {
+            List<PendingWrite> batch = drained.subList(from, Math.min(from + batchSize, drained.size()));
+            List<PendingWrite> written;
+            try {
+                writeInNewTransaction(batch);
+                batch.forEach(pendingWrite -> failedAttempts.remove(pendingWrite.reservation.getExternalIdentifier()));
+                written = batch;
+            } catch (RuntimeException e) {
+                if (!isRejection(e)) {
+                    throw e;
+                }
+                logger.warn("The database rejected a batch of {} pending reservations, writing them one at a time.", batch.size(), e);
+                written = batch.stream().filter(this::writeAlone).collect(Collectors.toList());
+            }
+            // A reservation saved again meanwhile stays pending
+            written.forEach(pendingWrite -> pendingWrites.remove(pendingWrite.reservation.getExternalIdentifier(), pendingWrite));
+            journalLock.writeLock().lock();
+            try {
+                journal.truncate(LongStream.concat(pendingWrites.values().stream().mapToLong(pendingWrite -> pendingWrite.sequence),
+                        inDoubtSequences.stream().mapToLong(Long::longValue)).min().orElse(Long.MAX_VALUE));
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void writeInNewTransaction(List<PendingWrite> batch) {
+        transactionRetryTemplate.executeInNewTransaction(() -> {
+            write(batch);
+            return null;
+        });
+    }
+
+    /**
+     * Writes the reservation on its own, or counts its rejection and sets it aside after too many in a row.
+     *
+     * @return true if the reservation was written
+     */
+    private boolean writeAlone(PendingWrite pendingWrite) {
+        String externalIdentifier = pendingWrite.reservation.getExternalIdentifier();
+        try {
+            writeInNewTransaction(Collections.singletonList(pendingWrite));
+            failedAttempts.remove(externalIdentifier);
+            return true;
+        } catch (RuntimeException e) {
+            if (!isRejection(e)) {
+                throw e;
+            }
+            drainFailures.increment();
+            int attempts = failedAttempts.merge(externalIdentifier, 1, Integer::sum);
+            if (attempts < maxAttempts) {
+                logger.warn("The database rejected the pending reservation {} ({} of {} attempts).", externalIdentifier, attempts, maxAttempts, e);
+                return false;
+            }
+            rejectedJournal.append(Collections.singletonList(pendingWrite.reservation));
+            failedAttempts.remove(externalIdentifier);
+            if (pendingWrites.remove(externalIdentifier, pendingWrite)) {
+                setAside.increment();
+                logger.error("The database rejected the pending reservation {} {} times, set aside in {}.", externalIdentifier, attempts,
+                        journalDirectory.resolve("rejected"), e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the database refused the data, false if it could not be reached or may accept it on its own later
+     */
+    private static boolean isRejection(RuntimeException e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof DataAccessResourceFailureException);
+    }
+
+    private void write(List<PendingWrite> batch) {
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_RESERVATION, batch, batch.size(), (statement, pendingWrite) -> {
+            ReservationEntity reservation = pendingWrite.reservation;
+            statement.setString(1, reservation.getFirstName());
+            statement.setString(2, reservation.getLastName());
+            statement.setString(3, reservation.getEmail());
+            statement.setObject(4, reservation.getCheckinDate());
+            statement.setObject(5, reservation.getCheckoutDate());
+            statement.setString(6, reservation.getStatus());
+            statement.setInt(7, reservation.getNumOfGuests());
+            statement.setLong(8, reservation.getVersion());
+            statement.setString(9, reservation.getExternalIdentifier());
+        })[0];
+        // Drivers may not report the rows of every statement of a batch: those not reported as updated are looked up
+        List<ReservationEntity> unconfirmed = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] != 1) {
+                unconfirmed.add(batch.get(i).reservation);
+            }
+        }
+        if (unconfirmed.isEmpty()) {
+            return;
+        }
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList("select external_identifier from reservations where external_identifier in ("
+                        + String.join(", ", Collections.nCopies(unconfirmed.size(), "?")) + ")", String.class,
+                unconfirmed.stream().map(ReservationEntity::getExternalIdentifier).toArray()));
+        List<ReservationEntity> inserted = unconfirmed.stream()
+                .filter(reservation -> !existing.contains(reservation.getExternalIdentifier()))
+                .collect(Collectors.toList());
+        if (inserted.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_RESERVATION, inserted, inserted.size(), (statement, reservation) -> {
+            statement.setLong(1, reservation.getId());
+            statement.setString(2, reservation.getFirstName());
+            statement.setString(3, reservation.getLastName());
+            statement.setString(4, reservation.getEmail());
+            statement.setObject(5, reservation.getCheckinDate());
+            statement.setObject(6, reservation.getCheckoutDate());
+            statement.setString(7, reservation.getStatus());
+            statement.setInt(8, reservation.getNumOfGuests());
+            statement.setLong(9, reservation.getVersion());
+            statement.setString(10, reservation.getExternalIdentifier());
+            statement.setLong(11, reservation.getSiteId());
+            statement.setLong(12, reservation.getUnitId());
+            statement.setTimestamp(13, new Timestamp(reservation.getCreatedOn().getTime()));
+        });
+        logger.debug("Inserted {} of {} pending reservations", inserted.size(), batch.size());
+    }
+
+    private static ReservationEntity copy(ReservationEntity reservation) {
+        return new ReservationEntity(reservation.getId(), reservation.getFirstName(), reservation.getLastName(), reservation.getEmail(),
+                reservation.getSiteId(), reservation.getUnitId(), reservation.getCheckinDate(), reservation.getCheckoutDate(), reservation.getStatus(),
+                reservation.getNumOfGuests(), reservation.getCreatedOn(), reservation.getExternalIdentifier(), reservation.getVersion());
+    }
+
+    /**
+     * Journals the reservations right before their transaction commits, once the rest of it is flushed, and publishes
+     * them once it committed. Ordered first, so that a failed commit is compensated before the other rollback callbacks
+     * free the days of the reservations.
+     */
+    private final class JournaledWrite implements TransactionSynchronization {
+        private final List<ReservationEntity> reservations;
+        private long firstSequence;
+
+        private JournaledWrite(List<ReservationEntity> reservations) {
+            this.reservations = reservations;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            entityManager.flush();
+            firstSequence = append(reservations);
+        }
+
+        @Override
+        public void afterCommit() {
+            publish(reservations, firstSequence);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED && firstSequence != 0) {
+                compensate(reservations, firstSequence);
+            }
+        }
+    }
+
+    private static final class PendingWrite {
+        private final ReservationEntity reservation;
+        private final long sequence;
+
+        private PendingWrite(ReservationEntity reservation, long sequence) {
+            this.reservation = reservation;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.campsite.common.stream;
+
+import com.campsite.model.AvailabilityCalendar;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.function.Supplier;
+
+/**
+ * Server-sent event streams of availability calendars, for clients that would otherwise poll them.
+ */
+public interface AvailabilityStreams {
+
+    /**
+     * Opens a stream sending the calendar now, then again whenever it changes. The calendar is computed a first
+     * time before the stream is opened, so that a request that cannot be answered fails instead.
+     *
+     * @param calendarSupplier computes the calendar of the window at the current occupancy version
+     */
+    SseEmitter subscribe(Supplier<AvailabilityCalendar> calendarSupplier);
+
+    int countSubscribers();
+}
@@ -0,0 +1,183 @@
+package com.campsite.common.stream.impl;
+
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.common.stream.AvailabilityStreams;
+import com.campsite.model.AvailabilityCalendar;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Streams are held open by the servlet container without a thread each. A single thread checks the occupancy version
+ * every {@code availability.stream.check-interval} and, when it moved, sends every stream whose calendar changed.
+ * Calendars come from the availability cache, so the streams of the same window share one computation per version.
+ * <p>
+ * The notifier only hands the calendars over: every stream is written by a sender thread, one write at a time and
+ * without a lock held, so a client that stops reading only delays its own stream. A calendar superseded while the
+ * previous write of its stream is in progress is never sent.
+ */
+@Component
+public class AvailabilityStreamsImpl implements AvailabilityStreams {
+    private static final Logger logger = LogManager.getLogger(AvailabilityStreamsImpl.class);
+    private static final String EVENT_NAME = "availability";
+    private final Queue<Subscription> subscriptions = new ConcurrentLinkedQueue<>();
+    private final Duration checkInterval;
+    private final Duration timeout;
+    private ScheduledExecutorService notifier;
+    private ExecutorService sender;
+    private long notifiedVersion;
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    public AvailabilityStreamsImpl(@Value("${availability.stream.check-interval:200ms}") Duration checkInterval,
+                                   @Value("${availability.stream.timeout:30m}") Duration timeout) {
+        this.checkInterval = checkInterval;
+        this.timeout = timeout;
+    }
+
+    @PostConstruct
+    public void startNotifying() {
+        notifiedVersion = occupancyIndex.version();
+        notifier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-stream-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderThreads = new AtomicInteger();
+        sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "availability-stream-sender-" + senderThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        notifier.scheduleWithFixedDelay(this::notifySubscribers, checkInterval.toMillis(), checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopNotifying() {
+        notifier.shutdownNow();
+        sender.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        subscriptions.clear();
+    }
+
+    @Override
+    public SseEmitter subscribe(Supplier<AvailabilityCalendar> calendarSupplier) {
+        // Fails the request rather than the stream if the calendar cannot be computed
+        calendarSupplier.get();
+        Subscription subscription = new Subscription(new SseEmitter(timeout.toMillis()), calendarSupplier);
+        subscription.emitter.onCompletion(() -> subscriptions.remove(subscription));
+        subscription.emitter.onTimeout(() -> subscriptions.remove(subscription));
+        subscription.emitter.onError(error -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+
+        // Computed again once subscribed, so that a change made in between is not missed if the notifier checked before
+        subscription.send(calendarSupplier.get());
+        return subscription.emitter;
+    }
+
+    @Override
+    public int countSubscribers() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Sends the calendars changed since the previous check. Only called by the notifier thread.
+     */
+    void notifySubscribers() {
+        long version = occupancyIndex.version();
+        if (version == notifiedVersion) {
+            return;
+        }
+        notifiedVersion = version;
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.send(subscription.calendarSupplier.get());
+            } catch (RuntimeException e) {
+                // e.g. a window that is no longer valid now that its start date has passed
+                logger.debug("Closing availability stream: {}", e.getMessage());
+                subscriptions.remove(subscription);
+                subscription.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final Supplier<AvailabilityCalendar> calendarSupplier;
+        private final AtomicReference<AvailabilityCalendar> pending = new AtomicReference<>();
+        private final AtomicBoolean writing = new AtomicBoolean();
+        // only read and written by the write in progress
+        private long sentVersion = -1;
+        private String sentETag;
+
+        private Subscription(SseEmitter emitter, Supplier<AvailabilityCalendar> calendarSupplier) {
+            this.emitter = emitter;
+            this.calendarSupplier = calendarSupplier;
+        }
+
+        /**
+         * Sends the calendar unless the client already has it, or a calendar of a newer version. The subscribing thread
+         * and the notifier thread may both send the first calendar, in any order.
+         */
+        private void send(AvailabilityCalendar calendar) {
+            pending.accumulateAndGet(calendar, (queued, next) -> queued == null || next.getVersion() >= queued.getVersion() ? next : queued);
+            scheduleWrite();
+        }
+
+        private void scheduleWrite() {
+            if (pending.get() == null || !writing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(this::write);
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                writing.set(false);
+            }
+        }
+
+        private void write() {
+            try {
+                for (AvailabilityCalendar calendar = pending.getAndSet(null); calendar != null; calendar = pending.getAndSet(null)) {
+                    if (calendar.getVersion() < sentVersion || calendar.getETag().equals(sentETag)) {
+                        continue;
+                    }
+                    try {
+                        emitter.send(SseEmitter.event().name(EVENT_NAME).id(calendar.getETag()).data(calendar.getBody(), MediaType.APPLICATION_JSON));
+                        sentVersion = calendar.getVersion();
+                        sentETag = calendar.getETag();
+                    } catch (IOException | IllegalStateException e) {
+                        // the client went away, or the stream completed concurrently
+                        subscriptions.remove(this);
+                        return;
+                    }
+                }
+            } finally {
+                writing.set(false);
+            }
+            // a calendar handed over after the last one was taken, while this write still looked in progress
+            scheduleWrite();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.campsite.common.transaction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in a transaction and runs it again in a fresh transaction when it loses a race to a concurrent one,
+ * i.e. fails with a {@link ConcurrencyFailureException} such as a stale version or a day claimed concurrently.
+ * Attempts are bounded, and separated by a random backoff that doubles after every attempt up to a maximum.
+ * Retries are counted by the {@value #RETRY_COUNTER} counter.
+ */
+@Component
+public class TransactionRetryTemplate {
+    public static final String RETRY_COUNTER = "transaction.retries";
+    private static final Logger logger = LogManager.getLogger(TransactionRetryTemplate.class);
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate newTransaction;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Counter retryCounter;
+
+    public TransactionRetryTemplate(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                    @Value("${booking.retry.max-attempts:3}") int maxAttempts,
+                                    @Value("${booking.retry.initial-backoff:10ms}") Duration initialBackoff,
+                                    @Value("${booking.retry.max-backoff:200ms}") Duration maxBackoff) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.retryCounter = Counter.builder(RETRY_COUNTER)
+                .description("Transactions run again after losing a race to a concurrent one")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action in the current transaction, or in a new one if there is none.
+     * Only retried when it does not join a transaction, as a transaction that lost a race cannot go on.
+     */
+    public <T> T execute(Supplier<T> action) {
+        return execute(transaction, !TransactionSynchronizationManager.isActualTransactionActive(), action);
+    }
+
+    /**
+     * Runs the action in a new transaction, suspending the current one if any.
+     */
+    public <T> T executeInNewTransaction(Supplier<T> action) {
+        return execute(newTransaction, true, action);
+    }
+
+    private <T> T execute(TransactionTemplate transactionTemplate, boolean retryable, Supplier<T> action) {
+        long backoffNanos = initialBackoffNanos;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                if (!retryable || attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.info("Attempt {} of {} lost a concurrent update, retrying: {}", attempt, maxAttempts, e.getMessage());
+                retryCounter.increment();
+                try {
+                    TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(backoffNanos + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                backoffNanos = Math.min(backoffNanos * 2, maxBackoffNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.campsite.common.waitlist;
+
+import com.campsite.model.Hold;
+import com.campsite.model.WaitlistEntry;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Holds of days claimed in the occupancy index, released when they expire, and the guests waiting for sold-out
+ * days, first come first served. Days released by a cancellation, a change of dates or an expired hold are offered
+ * to the waiting guests, and held for the first ones they fit.
+ */
+public interface Waitlist {
+
+    /**
+     * Holds days already claimed on the unit, until the hold is taken, released or expires.
+     */
+    Hold hold(long siteId, long unitId, LocalDate checkinDate, LocalDate checkoutDate);
+
+    /**
+     * Takes the held days over: they are no longer released by the hold, but by the caller.
+     *
+     * @return the unit of the hold
+     * @throws com.campsite.exceptions.ResourceNotFoundException if the hold does not exist or has expired
+     * @throws com.campsite.exceptions.InvalidParameterException if the hold is for other dates
+     */
+    long take(String holdId, long siteId, LocalDate checkinDate, LocalDate checkoutDate);
+
+    /**
+     * Releases the held days.
+     *
+     * @return false if the hold does not exist or has expired
+     */
+    boolean release(String holdId);
+
+    /**
+     * Queues the guest for the days, or holds them for the guest right away if they are free.
+     */
+    WaitlistEntry join(long siteId, LocalDate checkinDate, LocalDate checkoutDate);
+
+    Optional<WaitlistEntry> retrieve(String entryId);
+
+    /**
+     * Removes the guest from the queue, releasing the days held for the guest if any.
+     *
+     * @return false if the entry does not exist or is no longer waiting nor held
+     */
+    boolean leave(String entryId);
+
+    /**
+     * Offers the given days, just released in the occupancy index, to the guests waiting for them.
+     */
+    void offer(long siteId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Claims the days of the live holds again, in an occupancy index that was reloaded without them. Holds whose days
+     * are taken in the reloaded index are ended as expired. Holds placed since the reload started, whose days may have
+     * been claimed in the reloaded index already, are kept either way.
+     *
+     * @param reloadStartNanos the {@link System#nanoTime()} at which the occupancy index was cleared
+     */
+    void reclaimHolds(long reloadStartNanos);
+}
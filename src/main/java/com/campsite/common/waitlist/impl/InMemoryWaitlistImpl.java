@@ -0,0 +1,320 @@
+package com.campsite.common.waitlist.impl;
+
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.common.scheduling.TimerWheel;
+import com.campsite.common.waitlist.Waitlist;
+import com.campsite.exceptions.InvalidParameterException;
+import com.campsite.exceptions.ResourceNotFoundException;
+import com.campsite.model.Hold;
+import com.campsite.model.WaitlistEntry;
+import com.campsite.model.WaitlistStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds and queues live in memory, on this node, and expire on a {@link TimerWheel}: nothing is polled, and no
+ * database row is written until a hold is booked. Every day of a site has its queue of the guests waiting for it,
+ * ordered by arrival; released days are offered to the guests of their queues in that order, and held for every guest
+ * whose whole stay fits in a free unit. Entries that ended are kept for one hold time-to-live, for the guests to read.
+ * <p>
+ * Held days are only claimed in the occupancy index of this node, so holds are not available in cluster mode, and are
+ * claimed again after the index is reloaded.
+ * <p>
+ * The queues and entries of a site are guarded by the lock of the site, so offers of different sites never wait on
+ * each other. Only {@link ReentrantLock}s are used, which park a waiting virtual thread without pinning its carrier.
+ */
+@Component
+public class InMemoryWaitlistImpl implements Waitlist {
+    private static final Logger logger = LogManager.getLogger(InMemoryWaitlistImpl.class);
+    private static final Comparator<WaitingGuest> BY_ARRIVAL = Comparator.comparingLong(guest -> guest.arrival);
+    private final Map<String, HeldDays> holds = new ConcurrentHashMap<>();
+    private final Map<String, WaitingGuest> guests = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, NavigableSet<WaitingGuest>>> queuesBySite = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantLock> siteLocks = new ConcurrentHashMap<>();
+    private final OccupancyIndex occupancyIndex;
+    private final TimerWheel timerWheel;
+    private final Duration holdTimeToLive;
+    private final boolean clusterEnabled;
+    private final AtomicLong arrivals = new AtomicLong();
+
+    public InMemoryWaitlistImpl(OccupancyIndex occupancyIndex,
+                                @Value("${waitlist.hold.time-to-live:10m}") Duration holdTimeToLive,
+                                @Value("${waitlist.timer.tick:100ms}") Duration tick,
+                                @Value("${waitlist.timer.slots:512}") int slots,
+                                @Value("${cluster.enabled:false}") boolean clusterEnabled) {
+        this.occupancyIndex = occupancyIndex;
+        this.timerWheel = new TimerWheel("hold-expiry-timer", tick, slots);
+        this.holdTimeToLive = holdTimeToLive;
+        this.clusterEnabled = clusterEnabled;
+    }
+
+    @PreDestroy
+    public void stopTimer() {
+        timerWheel.close();
+    }
+
+    @Override
+    public Hold hold(long siteId, long unitId, LocalDate checkinDate, LocalDate checkoutDate) {
+        checkSingleNode();
+        return hold(siteId, unitId, checkinDate, checkoutDate, null).hold;
+    }
+
+    @Override
+    public long take(String holdId, long siteId, LocalDate checkinDate, LocalDate checkoutDate) {
+        HeldDays heldDays = holds.get(holdId);
+        if (heldDays == null) {
+            throw new ResourceNotFoundException("Hold with ID: " + holdId + " does not exist or has expired.");
+        }
+        Hold hold = heldDays.hold;
+        if (hold.getSiteId() != siteId || !hold.getCheckinDate().equals(checkinDate) || !hold.getCheckoutDate().equals(checkoutDate)) {
+            throw new InvalidParameterException("Hold with ID: " + holdId + " is for other dates or another site.");
+        }
+        if (!heldDays.timeout.cancel()) {
+            throw new ResourceNotFoundException("Hold with ID: " + holdId + " does not exist or has expired.");
+        }
+        holds.remove(holdId, heldDays);
+        end(heldDays.guest, WaitlistStatus.BOOKED);
+        return hold.getUnitId();
+    }
+
+    @Override
+    public boolean release(String holdId) {
+        HeldDays heldDays = holds.get(holdId);
+        if (heldDays == null || !heldDays.timeout.cancel()) {
+            return false;
+        }
+        holds.remove(holdId, heldDays);
+        releaseDays(heldDays, WaitlistStatus.LEFT);
+        return true;
+    }
+
+    @Override
+    public WaitlistEntry join(long siteId, LocalDate checkinDate, LocalDate checkoutDate) {
+        checkSingleNode();
+        WaitingGuest guest = new WaitingGuest(UUID.randomUUID().toString(), arrivals.getAndIncrement(), siteId, checkinDate, checkoutDate);
+        ReentrantLock lock = siteLock(siteId);
+        lock.lock();
+        try {
+            guests.put(guest.id, guest);
+            Map<Long, NavigableSet<WaitingGuest>> queues = queuesBySite.computeIfAbsent(siteId, id -> new HashMap<>());
+            for (long day = checkinDate.toEpochDay(); day <= checkoutDate.toEpochDay(); day++) {
+                queues.computeIfAbsent(day, key -> new TreeSet<>(BY_ARRIVAL)).add(guest);
+            }
+        } finally {
+            lock.unlock();
+        }
+        // the days may be free already, or have been released since the caller found them sold out
+        offer(siteId, checkinDate, checkoutDate);
+        return retrieve(guest.id).orElseThrow();
+    }
+
+    @Override
+    public Optional<WaitlistEntry> retrieve(String entryId) {
+        WaitingGuest guest = guests.get(entryId);
+        if (guest == null) {
+            return Optional.empty();
+        }
+        ReentrantLock lock = siteLock(guest.siteId);
+        lock.lock();
+        try {
+            return Optional.of(new WaitlistEntry(guest.id, guest.siteId, guest.checkinDate, guest.checkoutDate, guest.status,
+                    guest.heldDays == null ? null : guest.heldDays.hold));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean leave(String entryId) {
+        WaitingGuest guest = guests.get(entryId);
+        if (guest == null) {
+            return false;
+        }
+        String holdId;
+        ReentrantLock lock = siteLock(guest.siteId);
+        lock.lock();
+        try {
+            if (guest.status == WaitlistStatus.WAITING) {
+                dequeue(guest);
+                end(guest, WaitlistStatus.LEFT);
+                return true;
+            }
+            if (guest.status != WaitlistStatus.HELD) {
+                return false;
+            }
+            holdId = guest.heldDays.hold.getId();
+        } finally {
+            lock.unlock();
+        }
+        // released without the lock, the days freed are offered under it again
+        return release(holdId);
+    }
+
+    @Override
+    public void offer(long siteId, LocalDate startDate, LocalDate endDate) {
+        // no guest ever waited at the site: nothing to lock
+        Map<Long, NavigableSet<WaitingGuest>> queues = queuesBySite.get(siteId);
+        if (queues == null) {
+            return;
+        }
+        ReentrantLock lock = siteLock(siteId);
+        lock.lock();
+        try {
+            NavigableSet<WaitingGuest> candidates = new TreeSet<>(BY_ARRIVAL);
+            for (long day = startDate.toEpochDay(); day <= endDate.toEpochDay(); day++) {
+                candidates.addAll(queues.getOrDefault(day, Collections.emptyNavigableSet()));
+            }
+            for (WaitingGuest guest : candidates) {
+                if (!hasFreeUnit(siteId, startDate, endDate)) {
+                    return;
+                }
+                Long unitId = occupancyIndex.claimAnyUnit(siteId, guest.checkinDate, guest.checkoutDate);
+                if (unitId != null) {
+                    dequeue(guest);
+                    guest.status = WaitlistStatus.HELD;
+                    guest.heldDays = hold(siteId, unitId, guest.checkinDate, guest.checkoutDate, guest);
+                    logger.info("Held the days {} to {} for waitlist entry {}", guest.checkinDate, guest.checkoutDate, guest.id);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void reclaimHolds(long reloadStartNanos) {
+        for (HeldDays heldDays : holds.values()) {
+            Hold hold = heldDays.hold;
+            if (occupancyIndex.claim(hold.getUnitId(), hold.getCheckinDate(), hold.getCheckoutDate()) || heldDays.placedNanos - reloadStartNanos >= 0) {
+                continue;
+            }
+            // Unless taken, released or expired meanwhile, the hold must not release days that are no longer its own
+            if (heldDays.timeout.cancel()) {
+                holds.remove(hold.getId(), heldDays);
+                logger.warn("The days {} to {} of hold {} are booked in the reloaded occupancy index, the hold has ended.",
+                        hold.getCheckinDate(), hold.getCheckoutDate(), hold.getId());
+                end(heldDays.guest, WaitlistStatus.EXPIRED);
+                offer(hold.getSiteId(), hold.getCheckinDate(), hold.getCheckoutDate());
+            }
+        }
+    }
+
+    private HeldDays hold(long siteId, long unitId, LocalDate checkinDate, LocalDate checkoutDate, WaitingGuest guest) {
+        Hold hold = new Hold(UUID.randomUUID().toString(), siteId, unitId, checkinDate, checkoutDate, Instant.now().plus(holdTimeToLive));
+        HeldDays heldDays = new HeldDays(hold, guest);
+        // scheduled first, so every hold found in the map has its timeout
+        heldDays.timeout = timerWheel.schedule(() -> expire(heldDays), holdTimeToLive);
+        holds.put(hold.getId(), heldDays);
+        return heldDays;
+    }
+
+    /**
+     * Releases the days of the hold. Runs on the timer wheel thread, only if the timeout of the hold was not cancelled:
+     * whoever wins the timeout, this task or a cancel, is the one that ends the hold.
+     */
+    private void expire(HeldDays heldDays) {
+        holds.remove(heldDays.hold.getId(), heldDays);
+        releaseDays(heldDays, WaitlistStatus.EXPIRED);
+    }
+
+    private void releaseDays(HeldDays heldDays, WaitlistStatus guestStatus) {
+        Hold hold = heldDays.hold;
+        occupancyIndex.release(hold.getUnitId(), hold.getCheckinDate(), hold.getCheckoutDate());
+        end(heldDays.guest, guestStatus);
+        offer(hold.getSiteId(), hold.getCheckinDate(), hold.getCheckoutDate());
+    }
+
+    /**
+     * Ends the entry of the guest, if any, and forgets it after a hold time-to-live.
+     */
+    private void end(WaitingGuest guest, WaitlistStatus status) {
+        if (guest == null || !guests.containsKey(guest.id)) {
+            return;
+        }
+        ReentrantLock lock = siteLock(guest.siteId);
+        lock.lock();
+        try {
+            guest.status = status;
+        } finally {
+            lock.unlock();
+        }
+        timerWheel.schedule(() -> forget(guest), holdTimeToLive);
+    }
+
+    private void forget(WaitingGuest guest) {
+        guests.remove(guest.id, guest);
+    }
+
+    private ReentrantLock siteLock(long siteId) {
+        return siteLocks.computeIfAbsent(siteId, id -> new ReentrantLock());
+    }
+
+    /**
+     * Removes the guest from the queues of its days. The caller holds the lock of the site.
+     */
+    private void dequeue(WaitingGuest guest) {
+        Map<Long, NavigableSet<WaitingGuest>> queues = queuesBySite.get(guest.siteId);
+        for (long day = guest.checkinDate.toEpochDay(); day <= guest.checkoutDate.toEpochDay(); day++) {
+            NavigableSet<WaitingGuest> queue = queues.get(day);
+            if (queue != null && queue.remove(guest) && queue.isEmpty()) {
+                queues.remove(day);
+            }
+        }
+    }
+
+    private boolean hasFreeUnit(long siteId, LocalDate startDate, LocalDate endDate) {
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            if (occupancyIndex.countFreeUnits(siteId, day) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkSingleNode() {
+        if (clusterEnabled) {
+            throw new InvalidParameterException("Holds and the waitlist are not available in cluster mode.");
+        }
+    }
+
+    private static final class HeldDays {
+        private final Hold hold;
+        private final WaitingGuest guest;
+        private final long placedNanos = System.nanoTime();
+        private volatile TimerWheel.Timeout timeout;
+
+        private HeldDays(Hold hold, WaitingGuest guest) {
+            this.hold = hold;
+            this.guest = guest;
+        }
+    }
+
+    private static final class WaitingGuest {
+        private final String id;
+        private final long arrival;
+        private final long siteId;
+        private final LocalDate checkinDate;
+        private final LocalDate checkoutDate;
+        private WaitlistStatus status = WaitlistStatus.WAITING;
+        private HeldDays heldDays;
+
+        private WaitingGuest(String id, long arrival, long siteId, LocalDate checkinDate, LocalDate checkoutDate) {
+            this.id = id;
+            this.arrival = arrival;
+            this.siteId = siteId;
+            this.checkinDate = checkinDate;
+            this.checkoutDate = checkoutDate;
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package com.campsite.controller;
 
+import com.campsite.common.admission.AdmissionControl;
+import com.campsite.common.stream.AvailabilityStreams;
 import com.campsite.controller.utils.OnCreate;
 import com.campsite.controller.utils.OnUpdate;
 import com.campsite.controller.utils.ReservationRequest;
 import com.campsite.exceptions.InvalidParameterException;
+import com.campsite.exceptions.PreconditionFailedException;
 import com.campsite.exceptions.ResourceNotFoundException;
+import com.campsite.exceptions.TooManyRequestsException;
+import com.campsite.model.AvailabilityCalendar;
+import com.campsite.model.AvailabilityEncoding;
+import com.campsite.model.BatchReservationResult;
+import com.campsite.model.CacheStatistics;
+import com.campsite.model.DailyAvailability;
+import com.campsite.model.ExportFormat;
 import com.campsite.model.Reservation;
+import com.campsite.model.Status;
 import com.campsite.persistence.entity.ReservationEntity;
 import com.campsite.service.ReservationService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.groups.Default;
 import java.time.LocalDate;
@@ -33,54 +50,166 @@ import java.util.List;
 @Validated
 public class ReservationController {
     private static final Logger logger = LogManager.getLogger(ReservationController.class);
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
     @Autowired
     private ReservationService reservationService;
 
+    @Autowired
+    private AvailabilityStreams availabilityStreams;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
     /**
      * Checks the availability for a given date range (period).
      *
      * @param startDate the start date for availability check
      * @param endDate   the end date for availability check
-     * @return the list of available dates
+     * @param siteId    the site to check, the default site if absent
+     * @param encoding  DATES for one date per entry, RANGES for one range of consecutive dates per entry
+     * @param request   the request, whose If-None-Match header is checked against the ETag of the calendar
+     * @return the dates, or ranges of dates, with at least one free unit, or 304 if the calendar did not change
      * @throws InvalidParameterException
      */
     @GetMapping("/availabilities")
-    public List<LocalDate> checkAvailability(@RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd")
-                                             LocalDate startDate, @DateTimeFormat(pattern = "yyyy-MM-dd") @RequestParam(value = "endDate", required = false) LocalDate endDate) {
-        // Find all available dates for the given date range
-        List<LocalDate> availableDates = reservationService.findAvailableDates(startDate, endDate);
-        logger.info("Available dates found between the period of " + startDate + " and " + endDate + " are: " + availableDates.toString());
-        return availableDates;
+    public ResponseEntity<byte[]> checkAvailability(@RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd")
+                                                    LocalDate startDate, @DateTimeFormat(pattern = "yyyy-MM-dd") @RequestParam(value = "endDate", required = false) LocalDate endDate,
+                                                    @RequestParam(value = "siteId", required = false) Long siteId,
+                                                    @RequestParam(value = "encoding", defaultValue = "DATES") AvailabilityEncoding encoding, WebRequest request) {
+        // Find all available dates for the given date range, already serialized
+        AvailabilityCalendar calendar = reservationService.findAvailabilityCalendar(siteId, startDate, endDate, encoding);
+        if (request.checkNotModified(calendar.getETag())) {
+            return null;
+        }
+        logger.debug("Available dates found between the period of {} and {} at version {}", startDate, endDate, calendar.getVersion());
+        return ResponseEntity.ok()
+                .eTag(calendar.getETag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(calendar.getBody());
+    }
+
+    /**
+     * Streams the availability of a given date range (period) as server-sent events: the calendar of the period,
+     * then the calendar again every time it changes. Each event has the ETag of its calendar as id.
+     *
+     * @param startDate the start date for availability check
+     * @param endDate   the end date for availability check
+     * @param siteId    the site to check, the default site if absent
+     * @param encoding  DATES for one date per entry, RANGES for one range of consecutive dates per entry
+     * @return the stream of the dates, or ranges of dates, with at least one free unit
+     * @throws InvalidParameterException
+     */
+    @GetMapping(value = "/availabilities/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAvailability(@RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+                                         @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+                                         @RequestParam(value = "siteId", required = false) Long siteId,
+                                         @RequestParam(value = "encoding", defaultValue = "DATES") AvailabilityEncoding encoding) {
+        return availabilityStreams.subscribe(() -> reservationService.findAvailabilityCalendar(siteId, startDate, endDate, encoding));
+    }
+
+    /**
+     * Counts the free units of a site for every date of a given date range (period).
+     *
+     * @param siteId    the site to check
+     * @param startDate the start date for availability check
+     * @param endDate   the end date for availability check
+     * @return the number of free units per date
+     * @throws InvalidParameterException
+     * @throws ResourceNotFoundException
+     */
+    @GetMapping("/sites/{siteId}/availabilities")
+    public List<DailyAvailability> checkSiteAvailability(@PathVariable Long siteId,
+                                                         @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+                                                         @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate) {
+        return reservationService.findAvailableUnits(siteId, startDate, endDate);
     }
 
     /**
      * **Exposing this method SOLELY for the purpose of this challenge in order to all reservations entities and their versions.**
-     * Retrieve all the reservations entities
+     * Retrieve a page of reservations entities, ordered by id. The next page, if any, is given by the {@code Link} header.
      *
-     * @return the list of reservations
+     * @param status    only the reservations with this status, if present
+     * @param startDate only the reservations ending on or after this date, if present
+     * @param endDate   only the reservations starting on or before this date, if present
+     * @param after     the id of the last reservation of the previous page
+     * @param limit     the maximum number of reservations of the page
+     * @return the page of reservations
+     * @throws InvalidParameterException
      */
     @GetMapping("/reservation/")
-    public List<ReservationEntity> retrieveAllReservations() {
-        // Fetch all the reservations
-        return reservationService.retrieveAllReservations();
+    public ResponseEntity<List<ReservationEntity>> retrieveReservations(@RequestParam(value = "status", required = false) Status status,
+                                                                        @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+                                                                        @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+                                                                        @RequestParam(value = "after", required = false) Long after,
+                                                                        @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        // Fetch the page of reservations
+        List<ReservationEntity> reservations = reservationService.retrieveReservations(status, startDate, endDate, after, limit);
+        if (reservations.size() < limit) {
+            return ResponseEntity.ok(reservations);
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", reservations.get(reservations.size() - 1).getId())
+                .toUriString();
+        return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"").body(reservations);
+    }
+
+    /**
+     * **Exposing this method SOLELY for the purpose of this challenge in order to all reservations entities and their versions.**
+     * Streams all the reservations entities matching the filters, one line per reservation.
+     *
+     * @param format    NDJSON or CSV
+     * @param status    only the reservations with this status, if present
+     * @param startDate only the reservations ending on or after this date, if present
+     * @param endDate   only the reservations starting on or before this date, if present
+     * @return the streamed reservations
+     */
+    @GetMapping("/reservation/export")
+    public ResponseEntity<StreamingResponseBody> exportReservations(@RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format,
+                                                                    @RequestParam(value = "status", required = false) Status status,
+                                                                    @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+                                                                    @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate) {
+        MediaType mediaType = format == ExportFormat.CSV ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson");
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(outputStream -> reservationService.exportReservations(status, startDate, endDate, format, outputStream));
     }
 
     /**
      * Retrieve a specific reservation
      *
      * @param id of the reservation
-     * @return the reservation
+     * @return the reservation, with its version as ETag
      * @throws ResourceNotFoundException
      */
     @GetMapping("/reservation/{id}")
-    public Reservation retrieveReservation(@PathVariable String id) {
+    public ResponseEntity<Reservation> retrieveReservation(@PathVariable String id) {
         // Find the specific reservation
         Reservation reservation = reservationService.retrieveReservation(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Reservation with this ID: " + id + " does not exist."));
 
-        logger.info("Found reservation with ID : " + id);
-        return reservation;
+        logger.info("Found reservation with ID : {}", id);
+        return ResponseEntity.ok().eTag(String.valueOf(reservation.getVersion())).body(reservation);
+    }
+
+    /**
+     * Retrieve the hit, miss and eviction statistics of the reservation lookup cache
+     *
+     * @return the statistics of the cache
+     */
+    @GetMapping("/caches/reservations")
+    public CacheStatistics retrieveReservationCacheStatistics() {
+        return reservationService.retrieveReservationCacheStatistics();
+    }
+
+    /**
+     * Retrieve the hit, miss and eviction statistics of the availability calendar cache
+     *
+     * @return the statistics of the cache
+     */
+    @GetMapping("/caches/availabilities")
+    public CacheStatistics retrieveAvailabilityCacheStatistics() {
+        return reservationService.retrieveAvailabilityCacheStatistics();
     }
 
 
@@ -88,31 +217,55 @@ public class ReservationController {
      * Creates a reservation with the given information.
      *
      * @param reservationRequest the requested reservation information
-     * @return the unique identifier for the reservation
+     * @param idempotencyKey     a key unique to the reservation, if retries of the request must not book it again
+     * @return the unique identifier for the reservation, the one created by the first request with the key if any
+     * @throws InvalidParameterException
+     * @throws TooManyRequestsException
      */
     @PostMapping("/reservation")
     @ResponseStatus(HttpStatus.CREATED)
-    public String createReservation(@RequestBody @Validated({OnCreate.class, Default.class}) ReservationRequest reservationRequest) {
-        // Create reservation with specified information
-        String reservationCreatedExternalIdentifier = reservationService.createReservation(reservationRequest);
-        logger.info("Successfully created reservation with ID : " + reservationCreatedExternalIdentifier);
+    public String createReservation(@RequestBody @Validated({OnCreate.class, Default.class}) ReservationRequest reservationRequest,
+                                    @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        // Create reservation with specified information, unless it was already created for the key
+        String reservationCreatedExternalIdentifier = admissionControl.admit(reservationRequest, idempotencyKey != null,
+                () -> reservationService.createReservation(reservationRequest, idempotencyKey));
+        logger.info("Successfully created reservation with ID : {}", reservationCreatedExternalIdentifier);
         return "Successfully created reservation with ID : " + reservationCreatedExternalIdentifier;
     }
 
 
+    /**
+     * Creates a batch of reservations. Every reservation is validated on its own and against the previous ones of the batch,
+     * and the accepted ones are persisted together.
+     *
+     * @param reservationRequests the requested reservations information
+     * @return for every requested reservation, its unique identifier or the reason it was rejected
+     * @throws InvalidParameterException
+     */
+    @PostMapping("/reservation/batch")
+    public List<BatchReservationResult> createReservations(@RequestBody List<ReservationRequest> reservationRequests) {
+        List<BatchReservationResult> results = reservationService.createReservations(reservationRequests);
+        logger.info("Successfully processed batch of {} reservations.", results.size());
+        return results;
+    }
+
     /**
      * Updates an existing reservation with the given information.
      *
      * @param reservationRequest the request reservation information
-     * @return the unique identifier for the reservation
+     * @param ifMatch            the ETag of the reservation as last read, if the update must not overwrite a newer version
+     * @return the updated reservation, with its new version as ETag
+     * @throws InvalidParameterException
+     * @throws PreconditionFailedException
      */
     @PatchMapping("/reservation/{id}")
-    public Reservation updateReservation(@PathVariable String id, @Validated({OnUpdate.class, Default.class}) @RequestBody ReservationRequest reservationRequest) {
+    public ResponseEntity<Reservation> updateReservation(@PathVariable String id, @Validated({OnUpdate.class, Default.class}) @RequestBody ReservationRequest reservationRequest,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         // Update reservation
-        Reservation updatedReservation = reservationService.updateReservation(id, reservationRequest);
-        logger.info("Successfully updated reservation with ID : " + updatedReservation.getExternalIdentifier());
-        return updatedReservation;
+        Reservation updatedReservation = reservationService.updateReservation(id, reservationRequest, parseVersion(ifMatch));
+        logger.info("Successfully updated reservation with ID : {}", updatedReservation.getExternalIdentifier());
+        return ResponseEntity.ok().eTag(String.valueOf(updatedReservation.getVersion())).body(updatedReservation);
     }
 
     /**
@@ -125,9 +278,24 @@ public class ReservationController {
     ResponseEntity<String> cancelReservation(@PathVariable String id) {
         // Cancel reservation
         reservationService.cancelReservation(id);
-        logger.info("Successfully cancelled reservation with ID : " + id);
+        logger.info("Successfully cancelled reservation with ID : {}", id);
         return ResponseEntity.ok("Successfully cancelled reservation with ID : " + id);
     }
 
+    private Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String version = ifMatch.trim();
+        if (version.startsWith("W/")) {
+            version = version.substring(2);
+        }
+        try {
+            return Long.valueOf(version.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterException("The If-Match header must be the ETag of the reservation.");
+        }
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.campsite.controller;
+
+import com.campsite.controller.utils.SiteRequest;
+import com.campsite.model.Site;
+import com.campsite.service.SiteService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * This controller is responsible for handling the requests related to the sites and their bookable units.
+ *
+ * @author Natalie Villanueva
+ * @version 1.0
+ */
+
+@RestController
+@RequestMapping("/api/v1")
+@Validated
+public class SiteController {
+    private static final Logger logger = LogManager.getLogger(SiteController.class);
+
+    @Autowired
+    private SiteService siteService;
+
+    /**
+     * Retrieve all the sites
+     *
+     * @return the list of sites with their number of units
+     */
+    @GetMapping("/sites")
+    public List<Site> retrieveSites() {
+        return siteService.retrieveSites();
+    }
+
+    /**
+     * Creates a site with the given number of units.
+     *
+     * @param siteRequest the requested site information
+     * @return the created site
+     */
+    @PostMapping("/sites")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Site createSite(@RequestBody @Validated SiteRequest siteRequest) {
+        Site site = siteService.createSite(siteRequest);
+        logger.info("Successfully created site with ID : {}", site.getId());
+        return site;
+    }
+}
@@ -0,0 +1,99 @@
+package com.campsite.controller;
+
+import com.campsite.controller.utils.StayRequest;
+import com.campsite.exceptions.ResourceNotFoundException;
+import com.campsite.model.Hold;
+import com.campsite.model.WaitlistEntry;
+import com.campsite.service.ReservationService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * This controller is responsible for handling the requests related to the holds of days and the waitlist of
+ * sold-out days.
+ *
+ * @author Natalie Villanueva
+ * @version 1.0
+ */
+
+@RestController
+@RequestMapping("/api/v1")
+@Validated
+public class WaitlistController {
+    private static final Logger logger = LogManager.getLogger(WaitlistController.class);
+
+    @Autowired
+    private ReservationService reservationService;
+
+    /**
+     * Holds the days for a while, to be booked by a reservation giving the ID of the hold.
+     *
+     * @param stayRequest the dates to hold, on the given unit or any unit of the site
+     * @return the hold, with the instant it expires
+     */
+    @PostMapping("/holds")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Hold placeHold(@RequestBody @Validated StayRequest stayRequest) {
+        Hold hold = reservationService.placeHold(stayRequest);
+        logger.info("Successfully placed hold with ID : {}", hold.getId());
+        return hold;
+    }
+
+    /**
+     * Releases the held days before the hold expires.
+     *
+     * @param id the hold ID
+     * @throws ResourceNotFoundException
+     */
+    @DeleteMapping("/holds/{id}")
+    ResponseEntity<String> releaseHold(@PathVariable String id) {
+        reservationService.releaseHold(id);
+        logger.info("Successfully released hold with ID : {}", id);
+        return ResponseEntity.ok("Successfully released hold with ID : " + id);
+    }
+
+    /**
+     * Queues for sold-out days. The days are held for the guest when released, and the hold is found on the entry.
+     *
+     * @param stayRequest the dates to wait for, on any unit of the site
+     * @return the waitlist entry
+     */
+    @PostMapping("/waitlist")
+    @ResponseStatus(HttpStatus.CREATED)
+    public WaitlistEntry joinWaitlist(@RequestBody @Validated StayRequest stayRequest) {
+        WaitlistEntry entry = reservationService.joinWaitlist(stayRequest);
+        logger.info("Successfully joined the waitlist with ID : {}", entry.getId());
+        return entry;
+    }
+
+    /**
+     * Retrieve a waitlist entry by ID
+     *
+     * @param id the waitlist entry ID
+     * @return the entry, its status and its hold if the days were held
+     * @throws ResourceNotFoundException
+     */
+    @GetMapping("/waitlist/{id}")
+    public WaitlistEntry retrieveWaitlistEntry(@PathVariable String id) {
+        return reservationService.retrieveWaitlistEntry(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Waitlist entry with ID: " + id + " does not exist."));
+    }
+
+    /**
+     * Leaves the waitlist, releasing the days held for the entry if any.
+     *
+     * @param id the waitlist entry ID
+     * @throws ResourceNotFoundException
+     */
+    @DeleteMapping("/waitlist/{id}")
+    ResponseEntity<String> leaveWaitlist(@PathVariable String id) {
+        reservationService.leaveWaitlist(id);
+        logger.info("Successfully left the waitlist with ID : {}", id);
+        return ResponseEntity.ok("Successfully left the waitlist with ID : " + id);
+    }
+}
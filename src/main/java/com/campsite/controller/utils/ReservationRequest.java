@@ -21,6 +21,12 @@ public class ReservationRequest {
     @NotNull(groups = OnCreate.class, message = "Email is required.")
     private String email;
 
+    private Long siteId;
+
+    private Long unitId;
+
+    private String holdId;
+
     @Future(groups = {OnCreate.class, OnUpdate.class}, message = "The checkin date must be in the future.")
     @DateTimeFormat(pattern = "yyyy-MM-dd")
     @NotNull(groups = OnCreate.class, message = "Checkin date is required.")
@@ -31,7 +37,8 @@ public class ReservationRequest {
     @NotNull(groups = OnCreate.class, message = "Checkout date is required.")
     private LocalDate checkoutDate;
 
+    // null on update keeps the stored number, null or 0 on create books the default number
     @PositiveOrZero(message = "The number of guests must be greater than 0.")
-    private int numOfGuests;
+    private Integer numOfGuests;
 
 }
\ No newline at end of file
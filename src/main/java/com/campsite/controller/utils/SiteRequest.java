@@ -0,0 +1,19 @@
+package com.campsite.controller.utils;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+@Data
+public class SiteRequest {
+
+    @NotNull(message = "Site name is required.")
+    private String name;
+
+    @Positive(message = "The number of units must be greater than 0.")
+    @Max(value = 100000, message = "The number of units must not exceed 100000.")
+    private int numOfUnits;
+
+}
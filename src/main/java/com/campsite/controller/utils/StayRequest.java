@@ -0,0 +1,30 @@
+package com.campsite.controller.utils;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import javax.validation.constraints.Future;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+
+/**
+ * The dates of a stay to hold, or to wait for.
+ */
+@Data
+public class StayRequest {
+
+    private Long siteId;
+
+    private Long unitId;
+
+    @Future(message = "The checkin date must be in the future.")
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    @NotNull(message = "Checkin date is required.")
+    private LocalDate checkinDate;
+
+    @Future(message = "The checkout date must be in the future.")
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    @NotNull(message = "Checkout date is required.")
+    private LocalDate checkoutDate;
+
+}
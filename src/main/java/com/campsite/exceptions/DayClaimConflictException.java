@@ -0,0 +1,21 @@
+package com.campsite.exceptions;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A day of the unit is already claimed in the database by another reservation. Retrying picks up the claim.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DayClaimConflictException extends ConcurrencyFailureException {
+    private static final long serialVersionUID = 1L;
+
+    public DayClaimConflictException(String message) {
+        super(message);
+    }
+
+    public DayClaimConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
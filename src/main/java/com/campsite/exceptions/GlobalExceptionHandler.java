@@ -1,10 +1,14 @@
 package com.campsite.exceptions;
 
+import com.campsite.common.metrics.BookingMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -19,10 +23,15 @@ import java.util.stream.Collectors;
 @ControllerAdvice
 public class GlobalExceptionHandler {
     private static final Logger logger  = LogManager.getLogger(GlobalExceptionHandler.class);
+
+    @Autowired
+    private BookingMetrics bookingMetrics;
+
     @ResponseBody
     @ExceptionHandler(ResourceNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public String handleResourceNotFoundException(ResourceNotFoundException ex) {
+        bookingMetrics.countError(ex);
         logger.error(ex.getMessage());
         return ex.getMessage();
     }
@@ -31,6 +40,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(InvalidParameterException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String handleInvalidParameterException(InvalidParameterException ex) {
+        bookingMetrics.countError(ex);
         logger.error(ex.getMessage());
         return ex.getMessage();
     }
@@ -39,10 +49,40 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(NoAvailabilityException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String handleNoAvailabilityException(NoAvailabilityException ex){
+        bookingMetrics.countError(ex);
+        logger.error(ex.getMessage());
+        return ex.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public String handlePreconditionFailedException(PreconditionFailedException ex) {
+        bookingMetrics.countError(ex);
         logger.error(ex.getMessage());
         return ex.getMessage();
     }
 
+    @ResponseBody
+    @ExceptionHandler(DayClaimConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String handleDayClaimConflictException(DayClaimConflictException ex) {
+        bookingMetrics.countError(ex);
+        String msg = new StringBuffer("The dates have been booked in a concurrent transaction. Please try again.").toString();
+        logger.error(ex.getMessage());
+        return msg;
+    }
+
+    @ResponseBody
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<String> handleTooManyRequestsException(TooManyRequestsException ex) {
+        bookingMetrics.countError(ex);
+        logger.warn(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(ex.getMessage());
+    }
+
     @ResponseBody
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -0,0 +1,24 @@
+package com.campsite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The available dates of a window, serialized as a JSON array, together with the occupancy version they were computed at.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilityCalendar {
+    @Setter
+    @Getter
+    private long version;
+    @Setter
+    @Getter
+    private String eTag;
+    @Setter
+    @Getter
+    private byte[] body;
+
+}
@@ -0,0 +1,8 @@
+package com.campsite.model;
+
+/**
+ * How the available dates of a window are listed: one entry per date, or one entry per run of consecutive dates.
+ */
+public enum AvailabilityEncoding {
+    DATES, RANGES
+}
@@ -0,0 +1,21 @@
+package com.campsite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchReservationResult {
+    @Setter
+    @Getter
+    private int index;
+    @Setter
+    @Getter
+    private String externalIdentifier;
+    @Setter
+    @Getter
+    private String error;
+
+}
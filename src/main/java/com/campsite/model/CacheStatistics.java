@@ -0,0 +1,30 @@
+package com.campsite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatistics {
+    @Setter
+    @Getter
+    private boolean enabled;
+    @Setter
+    @Getter
+    private long size;
+    @Setter
+    @Getter
+    private long hitCount;
+    @Setter
+    @Getter
+    private long missCount;
+    @Setter
+    @Getter
+    private long evictionCount;
+    @Setter
+    @Getter
+    private double hitRate;
+
+}
@@ -0,0 +1,20 @@
+package com.campsite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailyAvailability {
+    @Setter
+    @Getter
+    private LocalDate date;
+    @Setter
+    @Getter
+    private int freeUnits;
+
+}
@@ -0,0 +1,23 @@
+package com.campsite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Consecutive dates, from the start date to the end date, both inclusive.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class DateRange {
+    @Setter
+    @Getter
+    private LocalDate startDate;
+    @Setter
+    @Getter
+    private LocalDate endDate;
+
+}
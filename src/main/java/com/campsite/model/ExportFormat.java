@@ -0,0 +1,5 @@
+package com.campsite.model;
+
+public enum ExportFormat {
+    NDJSON, CSV
+}
@@ -0,0 +1,36 @@
+package com.campsite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Dates kept on a unit for a guest until they expire, so that the guest can book them with the hold id meanwhile.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class Hold {
+    @Setter
+    @Getter
+    private String id;
+    @Setter
+    @Getter
+    private Long siteId;
+    @Setter
+    @Getter
+    private Long unitId;
+    @Setter
+    @Getter
+    private LocalDate checkinDate;
+    @Setter
+    @Getter
+    private LocalDate checkoutDate;
+    @Setter
+    @Getter
+    private Instant expiresAt;
+
+}
@@ -21,6 +21,12 @@ public class Reservation {
     private String email;
     @Setter
     @Getter
+    private Long siteId;
+    @Setter
+    @Getter
+    private Long unitId;
+    @Setter
+    @Getter
     private LocalDate checkinDate;
     @Setter
     @Getter
@@ -34,5 +40,8 @@ public class Reservation {
     @Getter
     @Setter
     private int numOfGuests;
+    @Getter
+    @Setter
+    private Long version;
 
 }
\ No newline at end of file
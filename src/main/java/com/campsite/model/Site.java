@@ -0,0 +1,21 @@
+package com.campsite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class Site {
+    @Setter
+    @Getter
+    private Long id;
+    @Setter
+    @Getter
+    private String name;
+    @Setter
+    @Getter
+    private int numOfUnits;
+
+}
@@ -0,0 +1,35 @@
+package com.campsite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * A guest waiting for dates that are sold out. The hold is set once the dates were freed and held for the guest.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class WaitlistEntry {
+    @Setter
+    @Getter
+    private String id;
+    @Setter
+    @Getter
+    private Long siteId;
+    @Setter
+    @Getter
+    private LocalDate checkinDate;
+    @Setter
+    @Getter
+    private LocalDate checkoutDate;
+    @Setter
+    @Getter
+    private WaitlistStatus status;
+    @Setter
+    @Getter
+    private Hold hold;
+
+}
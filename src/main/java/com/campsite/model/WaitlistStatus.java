@@ -0,0 +1,9 @@
+package com.campsite.model;
+
+/**
+ * WAITING for the dates to free up, HELD once they did, then BOOKED with the hold, or EXPIRED with the hold unused,
+ * or LEFT by the guest.
+ */
+public enum WaitlistStatus {
+    WAITING, HELD, BOOKED, EXPIRED, LEFT
+}
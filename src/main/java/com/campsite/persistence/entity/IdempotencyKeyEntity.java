@@ -0,0 +1,42 @@
+package com.campsite.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The reservation created for an Idempotency-Key, and the hash of the request that created it. Keys are only ever
+ * inserted or purged, so a second use of the same key fails on the primary key instead of being merged.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created", columnList = "created_date"))
+public class IdempotencyKeyEntity implements Persistable<String>, Serializable {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String id;
+
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+
+    @Column(name = "external_identifier", nullable = false)
+    private String externalIdentifier;
+
+    @Column(name = "created_date", nullable = false, insertable = false, updatable = false)
+    private Date createdOn;
+
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.campsite.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * A change of the days occupied on a unit, or of the reservation with the given external identifier, made by a node.
+ * The period is absent when no day changed. The creation date is set by the database, so that it is comparable across nodes.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "occupancy_changes", indexes = @Index(name = "idx_occupancy_changes_created", columnList = "created_date"))
+public class OccupancyChangeEntity implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
+    @Column(name = "unit_id", nullable = false)
+    private Long unitId;
+
+    @Column(name = "start_date")
+    private LocalDate startDate;
+
+    @Column(name = "end_date")
+    private LocalDate endDate;
+
+    @Column(name = "external_identifier")
+    private String externalIdentifier;
+
+    @Column(name = "created_date", nullable = false, insertable = false, updatable = false)
+    private Date createdOn;
+
+}
@@ -0,0 +1,35 @@
+package com.campsite.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The occupied days of every unit after applying the reservation events up to the given one, serialized.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "occupancy_snapshots")
+public class OccupancySnapshotEntity implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId;
+
+    @Lob
+    @Column(name = "state", nullable = false)
+    private byte[] state;
+
+    @Column(name = "created_date", nullable = false, insertable = false, updatable = false)
+    private Date createdOn;
+
+}
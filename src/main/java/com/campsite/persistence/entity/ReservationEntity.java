@@ -16,11 +16,13 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = @Index(name = "idx_reservations_status_period", columnList = "status, checkin_date, checkout_date"))
 public class ReservationEntity implements Serializable {
+    public static final int ID_ALLOCATION_SIZE = 50;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+    @SequenceGenerator(name = "reservation_seq", sequenceName = "reservation_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "first_name", nullable = false)
@@ -32,6 +34,12 @@ public class ReservationEntity implements Serializable {
     @Column(name = "email", nullable = false)
     private String email;
 
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
+    @Column(name = "unit_id", nullable = false)
+    private Long unitId;
+
     @Column(name = "checkin_date", nullable = false)
     private LocalDate checkinDate;
 
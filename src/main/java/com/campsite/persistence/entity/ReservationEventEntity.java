@@ -0,0 +1,55 @@
+package com.campsite.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * An event of the reservation ledger: a reservation created, moved to new dates or cancelled, with the period it
+ * occupies on its unit, and for a move the period it occupied before. Events are only ever inserted.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "reservation_events", indexes = @Index(name = "idx_reservation_events_created", columnList = "created_date"))
+public class ReservationEventEntity implements Serializable {
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String CANCELLED = "CANCELLED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+
+    @Column(name = "unit_id", nullable = false)
+    private Long unitId;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    @Column(name = "previous_start_date")
+    private LocalDate previousStartDate;
+
+    @Column(name = "previous_end_date")
+    private LocalDate previousEndDate;
+
+    @Column(name = "created_date", nullable = false, insertable = false, updatable = false)
+    private Date createdOn;
+
+}
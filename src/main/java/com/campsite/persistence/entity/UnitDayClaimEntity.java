@@ -0,0 +1,34 @@
+package com.campsite.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * A day of a unit taken by a reservation. Claims are only ever inserted or deleted, so they are always new
+ * to the repository and a second claim of the same day fails on the primary key instead of being merged.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "unit_day_claims", indexes = @Index(name = "idx_unit_day_claims_reservation", columnList = "reservation_id"))
+public class UnitDayClaimEntity implements Persistable<UnitDayClaimId>, Serializable {
+
+    @EmbeddedId
+    private UnitDayClaimId id;
+
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+
+}
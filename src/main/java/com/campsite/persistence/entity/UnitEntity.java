@@ -0,0 +1,28 @@
+package com.campsite.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "units", indexes = @Index(name = "idx_units_site", columnList = "site_id"))
+public class UnitEntity implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "unit_seq")
+    @SequenceGenerator(name = "unit_seq", sequenceName = "unit_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+}
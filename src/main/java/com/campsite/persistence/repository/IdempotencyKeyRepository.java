@@ -0,0 +1,19 @@
+package com.campsite.persistence.repository;
+
+import com.campsite.persistence.entity.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKeyEntity k where k.createdOn < ?1")
+    int deleteKeysCreatedBefore(Date before);
+}
@@ -0,0 +1,26 @@
+package com.campsite.persistence.repository;
+
+import com.campsite.persistence.entity.OccupancyChangeEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface OccupancyChangeRepository extends JpaRepository<OccupancyChangeEntity, Long> {
+
+    @Query("select max(c.createdOn) from OccupancyChangeEntity c")
+    Date findLatestCreatedDate();
+
+    @Query("select c from OccupancyChangeEntity c where c.createdOn > ?1 and c.nodeId <> ?2 order by c.id")
+    List<OccupancyChangeEntity> findChangesOfOtherNodesSince(Date since, String nodeId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OccupancyChangeEntity c where c.createdOn < ?1")
+    int deleteChangesBefore(Date before);
+}
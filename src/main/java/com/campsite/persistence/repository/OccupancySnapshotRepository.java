@@ -0,0 +1,19 @@
+package com.campsite.persistence.repository;
+
+import com.campsite.persistence.entity.OccupancySnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface OccupancySnapshotRepository extends JpaRepository<OccupancySnapshotEntity, Long> {
+
+    OccupancySnapshotEntity findFirstByOrderByLastEventIdDesc();
+
+    @Modifying
+    @Transactional
+    @Query("delete from OccupancySnapshotEntity s where s.lastEventId < ?1")
+    int deleteSnapshotsBefore(long lastEventId);
+}
@@ -0,0 +1,32 @@
+package com.campsite.persistence.repository;
+
+import com.campsite.persistence.entity.ReservationEventEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+@Repository
+public interface ReservationEventRepository extends JpaRepository<ReservationEventEntity, Long> {
+    int STREAM_FETCH_SIZE = 1000;
+
+    @Query("select max(e.id) from ReservationEventEntity e")
+    Long findLastEventId();
+
+    @Query("select max(e.id) from ReservationEventEntity e where e.createdOn < ?1")
+    Long findLastEventIdCreatedBefore(Date before);
+
+    /**
+     * The events following the given one up to the given one, in order, read through a cursor of
+     * {@value #STREAM_FETCH_SIZE} rows at a time. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select e from ReservationEventEntity e where e.id > ?1 and e.id <= ?2 order by e.id")
+    Stream<ReservationEventEntity> streamEvents(long afterId, long toId);
+}
@@ -1,25 +1,47 @@
 package com.campsite.persistence.repository;
 
 import com.campsite.persistence.entity.ReservationEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
-import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<ReservationEntity, Long> {
+    int STREAM_FETCH_SIZE = 500;
 
     @Query("select r from ReservationEntity r where external_identifier = ?1 and status ='ACTIVE'")
     ReservationEntity findActiveReservationByExternalIdentifier(String id);
 
-    @Query("select r from ReservationEntity r where status ='ACTIVE' and ((checkinDate between ?1 and ?2) or (checkoutDate between ?1 and ?2)) order by  checkinDate")
+    /**
+     * Active reservations overlapping the given period, including those spanning all of it.
+     * Served by the (status, checkin_date, checkout_date) index.
+     */
+    @Query("select r from ReservationEntity r where r.status = 'ACTIVE' and r.checkinDate <= ?2 and r.checkoutDate >= ?1 order by r.checkinDate")
     List<ReservationEntity> findReservationsForGivenPeriod(LocalDate startDate, LocalDate endDate);
 
-    @Lock(LockModeType.PESSIMISTIC_READ)
-    @Query("select r from ReservationEntity r where status ='ACTIVE' and ((checkinDate between ?1 and ?2) or (checkoutDate between ?1 and ?2)) order by  checkinDate")
-    List<ReservationEntity> findReservationsForGivenPeriodForCreation(LocalDate startDate, LocalDate endDate);
+    @Query("select r from ReservationEntity r where status ='ACTIVE' and checkoutDate >= ?1")
+    List<ReservationEntity> findActiveReservationsEndingOnOrAfter(LocalDate date);
+
+    /**
+     * Keyset page: the reservations following the given id that match the optional status and overlap the optional period.
+     */
+    @Query("select r from ReservationEntity r where r.id > ?1 and (?2 is null or r.status = ?2) and (?3 is null or r.checkoutDate >= ?3) and (?4 is null or r.checkinDate <= ?4) order by r.id")
+    List<ReservationEntity> findReservationsAfter(Long afterId, String status, LocalDate startDate, LocalDate endDate, Pageable pageable);
+
+    /**
+     * Same filters as {@link #findReservationsAfter}, read through a cursor of {@value #STREAM_FETCH_SIZE} rows at a time.
+     * Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select r from ReservationEntity r where (?1 is null or r.status = ?1) and (?2 is null or r.checkoutDate >= ?2) and (?3 is null or r.checkinDate <= ?3) order by r.id")
+    Stream<ReservationEntity> streamReservations(String status, LocalDate startDate, LocalDate endDate);
 }
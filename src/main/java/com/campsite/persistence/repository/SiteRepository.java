@@ -0,0 +1,11 @@
+package com.campsite.persistence.repository;
+
+import com.campsite.persistence.entity.SiteEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SiteRepository extends JpaRepository<SiteEntity, Long> {
+
+    SiteEntity findFirstByOrderByIdAsc();
+}
@@ -0,0 +1,29 @@
+package com.campsite.persistence.repository;
+
+import com.campsite.persistence.entity.UnitDayClaimEntity;
+import com.campsite.persistence.entity.UnitDayClaimId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UnitDayClaimRepository extends JpaRepository<UnitDayClaimEntity, UnitDayClaimId> {
+
+    @Query("select c.id.claimDate from UnitDayClaimEntity c where c.id.unitId = ?1 and c.id.claimDate between ?2 and ?3")
+    List<LocalDate> findClaimedDates(Long unitId, LocalDate startDate, LocalDate endDate);
+
+    @Query("select c.id.claimDate from UnitDayClaimEntity c where c.id.unitId = ?1 and c.id.claimDate between ?2 and ?3 and c.reservationId <> ?4")
+    List<LocalDate> findDatesClaimedByOthers(Long unitId, LocalDate startDate, LocalDate endDate, Long reservationId);
+
+    @Modifying
+    @Query("delete from UnitDayClaimEntity c where c.reservationId = ?1")
+    int deleteClaims(Long reservationId);
+
+    @Modifying
+    @Query("delete from UnitDayClaimEntity c where c.reservationId = ?1 and (c.id.claimDate < ?2 or c.id.claimDate > ?3)")
+    int deleteClaimsOutside(Long reservationId, LocalDate keptStartDate, LocalDate keptEndDate);
+}
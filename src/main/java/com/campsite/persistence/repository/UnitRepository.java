@@ -0,0 +1,9 @@
+package com.campsite.persistence.repository;
+
+import com.campsite.persistence.entity.UnitEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UnitRepository extends JpaRepository<UnitEntity, Long> {
+}
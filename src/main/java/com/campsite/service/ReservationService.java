@@ -1,26 +1,80 @@
 package com.campsite.service;
 
 import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.controller.utils.StayRequest;
+import com.campsite.model.AvailabilityCalendar;
+import com.campsite.model.AvailabilityEncoding;
+import com.campsite.model.BatchReservationResult;
+import com.campsite.model.CacheStatistics;
+import com.campsite.model.DailyAvailability;
+import com.campsite.model.DateRange;
+import com.campsite.model.ExportFormat;
+import com.campsite.model.Hold;
 import com.campsite.model.Reservation;
+import com.campsite.model.Status;
+import com.campsite.model.WaitlistEntry;
 import com.campsite.persistence.entity.ReservationEntity;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 
 public interface ReservationService {
-    List<LocalDate> findAvailableDates(LocalDate startDate, LocalDate endDate);
+    List<LocalDate> findAvailableDates(Long siteId, LocalDate startDate, LocalDate endDate);
 
-    List<ReservationEntity> retrieveAllReservations();
+    List<DateRange> findAvailableRanges(Long siteId, LocalDate startDate, LocalDate endDate);
+
+    AvailabilityCalendar findAvailabilityCalendar(Long siteId, LocalDate startDate, LocalDate endDate, AvailabilityEncoding encoding);
+
+    CacheStatistics retrieveAvailabilityCacheStatistics();
+
+    List<DailyAvailability> findAvailableUnits(Long siteId, LocalDate startDate, LocalDate endDate);
+
+    List<ReservationEntity> retrieveReservations(Status status, LocalDate startDate, LocalDate endDate, Long afterId, int limit);
+
+    void exportReservations(Status status, LocalDate startDate, LocalDate endDate, ExportFormat format, OutputStream outputStream) throws IOException;
 
     Optional<Reservation> retrieveReservation(String id);
 
+    CacheStatistics retrieveReservationCacheStatistics();
+
     String createReservation(ReservationRequest reservationRequest);
 
+    /**
+     * Creates the reservation once per idempotency key: a request repeating the key of a created reservation returns
+     * its external identifier, without booking again. No key, if null.
+     */
+    String createReservation(ReservationRequest reservationRequest, String idempotencyKey);
+
+    List<BatchReservationResult> createReservations(List<ReservationRequest> reservationRequests);
+
     Reservation updateReservation(String id, ReservationRequest reservationRequested);
 
+    /**
+     * Updates the reservation only if it is still at the expected version, when one is given.
+     */
+    Reservation updateReservation(String id, ReservationRequest reservationRequested, Long expectedVersion);
+
     void cancelReservation(String id);
 
-    boolean isSlotAvailableForNewReservation(LocalDate startDate, LocalDate endDate);
-}
\ No newline at end of file
+    boolean isSlotAvailableForNewReservation(Long siteId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Claims the days and holds them until the hold is booked by a reservation, released or expires.
+     */
+    Hold placeHold(StayRequest stayRequest);
+
+    void releaseHold(String holdId);
+
+    /**
+     * Queues for sold-out days, which are held for the entry once released.
+     */
+    WaitlistEntry joinWaitlist(StayRequest stayRequest);
+
+    Optional<WaitlistEntry> retrieveWaitlistEntry(String entryId);
+
+    void leaveWaitlist(String entryId);
+}
@@ -0,0 +1,15 @@
+package com.campsite.service;
+
+import com.campsite.controller.utils.SiteRequest;
+import com.campsite.model.Site;
+
+import java.util.List;
+
+
+public interface SiteService {
+    List<Site> retrieveSites();
+
+    Site createSite(SiteRequest siteRequest);
+
+    Long getDefaultSiteId();
+}
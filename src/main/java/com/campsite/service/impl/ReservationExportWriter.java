@@ -0,0 +1,69 @@
+package com.campsite.service.impl;
+
+import com.campsite.model.ExportFormat;
+import com.campsite.persistence.entity.ReservationEntity;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes reservations one line at a time, as NDJSON or as CSV with a header line.
+ */
+class ReservationExportWriter implements Closeable {
+    private static final String CSV_HEADER = "id,externalIdentifier,siteId,unitId,firstName,lastName,email,checkinDate,checkoutDate,status,numOfGuests,createdOn,version";
+
+    private final ExportFormat format;
+    private final Writer writer;
+    private final JsonGenerator jsonGenerator;
+
+    ReservationExportWriter(ExportFormat format, OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == ExportFormat.NDJSON) {
+            jsonGenerator = objectMapper.getFactory().createGenerator(writer).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            jsonGenerator.setRootValueSeparator(null);
+        } else {
+            jsonGenerator = null;
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    void write(ReservationEntity reservation) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            jsonGenerator.writeObject(reservation);
+            jsonGenerator.flush();
+        } else {
+            writer.write(String.join(",", String.valueOf(reservation.getId()), csv(reservation.getExternalIdentifier()),
+                    String.valueOf(reservation.getSiteId()), String.valueOf(reservation.getUnitId()), csv(reservation.getFirstName()),
+                    csv(reservation.getLastName()), csv(reservation.getEmail()), String.valueOf(reservation.getCheckinDate()),
+                    String.valueOf(reservation.getCheckoutDate()), csv(reservation.getStatus()), String.valueOf(reservation.getNumOfGuests()),
+                    reservation.getCreatedOn() == null ? "" : reservation.getCreatedOn().toInstant().toString(), String.valueOf(reservation.getVersion())));
+        }
+        writer.write('\n');
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (jsonGenerator != null) {
+            jsonGenerator.close();
+        }
+        writer.flush();
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
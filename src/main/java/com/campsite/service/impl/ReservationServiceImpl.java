@@ -1,46 +1,190 @@
 package com.campsite.service.impl;
 
+import com.campsite.common.cache.AvailabilityCache;
+import com.campsite.common.cache.ReservationCache;
+import com.campsite.common.cluster.OccupancyChangeLog;
 import com.campsite.common.generator.ExternalIdentifierGenerator;
-import com.campsite.common.generator.impl.ExternalIdentifierGeneratorImpl;
+import com.campsite.common.idempotency.IdempotencyKeyStore;
+import com.campsite.common.ledger.OccupancyState;
+import com.campsite.common.ledger.ReservationLedger;
+import com.campsite.common.metrics.BookingMetrics;
+import com.campsite.common.occupancy.DayClaimStore;
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.common.store.ReservationStore;
+import com.campsite.common.transaction.TransactionRetryTemplate;
+import com.campsite.common.waitlist.Waitlist;
+import com.campsite.controller.utils.OnCreate;
 import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.controller.utils.StayRequest;
+import com.campsite.model.AvailabilityCalendar;
+import com.campsite.model.AvailabilityEncoding;
+import com.campsite.model.BatchReservationResult;
+import com.campsite.model.CacheStatistics;
+import com.campsite.model.DailyAvailability;
+import com.campsite.model.DateRange;
+import com.campsite.model.ExportFormat;
+import com.campsite.model.Hold;
+import com.campsite.model.WaitlistEntry;
 import com.campsite.exceptions.InvalidParameterException;
 import com.campsite.exceptions.NoAvailabilityException;
+import com.campsite.exceptions.PreconditionFailedException;
 import com.campsite.exceptions.ResourceNotFoundException;
 import com.campsite.model.Reservation;
 import com.campsite.model.Status;
 import com.campsite.persistence.entity.ReservationEntity;
 import com.campsite.persistence.repository.ReservationRepository;
+import com.campsite.persistence.repository.UnitRepository;
 import com.campsite.service.ReservationService;
-import ma.glasnost.orika.BoundMapperFacade;
-import ma.glasnost.orika.impl.DefaultMapperFactory;
+import com.campsite.service.SiteService;
+import com.campsite.service.mapper.ReservationMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.groups.Default;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.campsite.common.transaction.TransactionCallbacks.runAfterCommit;
+import static com.campsite.common.transaction.TransactionCallbacks.runAfterRollback;
+import static com.campsite.common.transaction.TransactionCallbacks.runBeforeCommit;
 
 @Service
 public class ReservationServiceImpl implements ReservationService {
 
     private static final Logger logger = LogManager.getLogger(ReservationServiceImpl.class);
-    private static final int DEFAULT_NUM_OF_GUESTS = 4;
-    private static final ExternalIdentifierGenerator externalIdentifierGenerator = new ExternalIdentifierGeneratorImpl();
-    final DefaultMapperFactory mapperFactory = new DefaultMapperFactory.Builder().build();
-    final BoundMapperFacade<ReservationEntity, Reservation> reservationEntityBoundMapper = mapperFactory.getMapperFacade(ReservationEntity.class, Reservation.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
 
     @Autowired
     private ReservationRepository reservationRepository;
 
-    @Transactional(readOnly = true)
-    public List<LocalDate> findAvailableDates(LocalDate startDate, LocalDate endDate) {
+    @Autowired
+    private ReservationStore reservationStore;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private SiteService siteService;
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    @Autowired
+    private DayClaimStore dayClaimStore;
+
+    @Autowired
+    private OccupancyChangeLog occupancyChangeLog;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private Waitlist waitlist;
+
+    @Autowired
+    private TransactionRetryTemplate transactionRetryTemplate;
+
+    @Autowired
+    private IdempotencyKeyStore idempotencyKeyStore;
+
+    @Autowired
+    private BookingMetrics bookingMetrics;
+
+    @Autowired
+    private ExternalIdentifierGenerator externalIdentifierGenerator;
+
+    @Autowired
+    private ReservationMapper reservationMapper;
+
+    @Autowired
+    private ReservationCache reservationCache;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Loads the units of every site and the days taken by the active reservations into the occupancy index,
+     * from the reservation ledger if one is kept, once every saved reservation is in the table. The days of the live
+     * holds are then claimed again.
+     */
+    @PostConstruct
+    public void loadOccupancyIndex() {
+        LocalDate todayDate = LocalDate.now();
+        reservationStore.flush();
+        long reloadStartNanos = System.nanoTime();
+        occupancyIndex.clear();
+        unitRepository.findAll().forEach(unit -> occupancyIndex.registerUnit(unit.getSiteId(), unit.getId()));
+        Optional<OccupancyState> ledgerOccupancy = reservationLedger.loadOccupancy();
+        if (ledgerOccupancy.isPresent()) {
+            ledgerOccupancy.get().forEachOccupiedPeriod(todayDate, (unitId, startDate, endDate) -> {
+                if (!occupancyIndex.claim(unitId, startDate, endDate)) {
+                    logger.warn("Days {} to {} of unit {} are occupied twice.", startDate, endDate, unitId);
+                }
+            });
+        } else {
+            reservationRepository.findActiveReservationsEndingOnOrAfter(todayDate).forEach(reservation -> {
+                LocalDate checkinDate = reservation.getCheckinDate().isBefore(todayDate) ? todayDate : reservation.getCheckinDate();
+                if (!occupancyIndex.claim(reservation.getUnitId(), checkinDate, reservation.getCheckoutDate())) {
+                    logger.warn("Reservation {} overlaps another active reservation.", reservation.getExternalIdentifier());
+                }
+            });
+        }
+        waitlist.reclaimHolds(reloadStartNanos);
+    }
+
+    public List<LocalDate> findAvailableDates(Long siteId, LocalDate startDate, LocalDate endDate) {
+        long resolvedSiteId = resolveSiteId(siteId);
+        startDate = ObjectUtils.firstNonNull(startDate, LocalDate.now().plusDays(1));
+        endDate = ObjectUtils.firstNonNull(endDate, LocalDate.now().plusDays(1).plusMonths(1));
+
+        // 1. Validate date range
+        if (!isPeriodValid(startDate, endDate)) {
+            throw new InvalidParameterException("The date range entered is incorrect.");
+        }
+
+        // 2. Keep the dates of the range that have at least one free unit
+        long firstDay = startDate.toEpochDay();
+        long freeDays = occupancyIndex.freeDays(resolvedSiteId, firstDay, endDate.toEpochDay());
+        List<LocalDate> availableDates = new ArrayList<>(Long.bitCount(freeDays));
+        for (long days = freeDays; days != 0; days &= days - 1) {
+            availableDates.add(LocalDate.ofEpochDay(firstDay + Long.numberOfTrailingZeros(days)));
+        }
+        logger.debug("Found the following available dates: {}", availableDates);
+        return availableDates;
+    }
+
+    public List<DateRange> findAvailableRanges(Long siteId, LocalDate startDate, LocalDate endDate) {
+        long resolvedSiteId = resolveSiteId(siteId);
         startDate = ObjectUtils.firstNonNull(startDate, LocalDate.now().plusDays(1));
         endDate = ObjectUtils.firstNonNull(endDate, LocalDate.now().plusDays(1).plusMonths(1));
 
@@ -49,135 +193,394 @@ public class ReservationServiceImpl implements ReservationService {
             throw new InvalidParameterException("The date range entered is incorrect.");
         }
 
-        // 2. Find reserved dates that are within date range
-        Map<LocalDate, Boolean> busyDates = retrieveReservedDates(startDate, endDate);
+        // 2. Turn every run of consecutive days with at least one free unit into a range
+        long firstDay = startDate.toEpochDay();
+        long freeDays = occupancyIndex.freeDays(resolvedSiteId, firstDay, endDate.toEpochDay());
+        List<DateRange> availableRanges = new ArrayList<>();
+        while (freeDays != 0) {
+            int first = Long.numberOfTrailingZeros(freeDays);
+            int last = first + Long.numberOfTrailingZeros(~(freeDays >>> first)) - 1;
+            availableRanges.add(new DateRange(LocalDate.ofEpochDay(firstDay + first), LocalDate.ofEpochDay(firstDay + last)));
+            freeDays = last == Long.SIZE - 1 ? 0 : freeDays & -1L << (last + 1);
+        }
+        return availableRanges;
+    }
+
+    public AvailabilityCalendar findAvailabilityCalendar(Long siteId, LocalDate startDate, LocalDate endDate, AvailabilityEncoding encoding) {
+        long resolvedSiteId = resolveSiteId(siteId);
+        LocalDate resolvedStartDate = ObjectUtils.firstNonNull(startDate, LocalDate.now().plusDays(1));
+        LocalDate resolvedEndDate = ObjectUtils.firstNonNull(endDate, LocalDate.now().plusDays(1).plusMonths(1));
 
-        // 3. Compare reserved dates with date range to know available dates
-        List<LocalDate> availableDates = Collections.synchronizedList(new ArrayList<>());
-        LocalDate tempStartDate = startDate;
+        // 1. Validate date range, before looking up calendars cached while the window was still valid
+        if (!isPeriodValid(resolvedStartDate, resolvedEndDate)) {
+            throw new InvalidParameterException("The date range entered is incorrect.");
+        }
 
-        while (tempStartDate.isBefore(endDate.plusDays(1))) {
-            if (busyDates.isEmpty() || !busyDates.containsKey(tempStartDate)) {
-                availableDates.add(tempStartDate);
+        // 2. Read the version first, so that the calendar is never cached at a version newer than what it was computed from
+        long version = occupancyIndex.version();
+
+        // 3. Reuse the calendar of the window if it was computed at this version, otherwise compute and serialize it
+        return availabilityCache.get(resolvedSiteId, resolvedStartDate, resolvedEndDate, encoding, version, () -> {
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(encoding == AvailabilityEncoding.RANGES
+                        ? findAvailableRanges(resolvedSiteId, resolvedStartDate, resolvedEndDate)
+                        : findAvailableDates(resolvedSiteId, resolvedStartDate, resolvedEndDate));
+                return new AvailabilityCalendar(version, "\"" + DigestUtils.md5DigestAsHex(body) + "\"", body);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize the availability calendar.", e);
             }
-            tempStartDate = tempStartDate.plusDays(1);
+        });
+    }
+
+    public CacheStatistics retrieveAvailabilityCacheStatistics() {
+        return availabilityCache.statistics();
+    }
+
+    public List<DailyAvailability> findAvailableUnits(Long siteId, LocalDate startDate, LocalDate endDate) {
+        long resolvedSiteId = resolveSiteId(siteId);
+        startDate = ObjectUtils.firstNonNull(startDate, LocalDate.now().plusDays(1));
+        endDate = ObjectUtils.firstNonNull(endDate, LocalDate.now().plusDays(1).plusMonths(1));
+
+        // 1. Validate date range
+        if (!isPeriodValid(startDate, endDate)) {
+            throw new InvalidParameterException("The date range entered is incorrect.");
         }
-        logger.info(new StringBuilder().append("Found the following available dates: ").append(availableDates).toString());
-        return availableDates;
+
+        // 2. Count the free units of every date of the range
+        List<DailyAvailability> availableUnits = new ArrayList<>();
+        for (long day = startDate.toEpochDay(); day <= endDate.toEpochDay(); day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            availableUnits.add(new DailyAvailability(date, occupancyIndex.countFreeUnits(resolvedSiteId, date)));
+        }
+        return availableUnits;
     }
 
     @Transactional(readOnly = true)
-    public List<ReservationEntity> retrieveAllReservations() {
-        return reservationRepository.findAll();
+    public List<ReservationEntity> retrieveReservations(Status status, LocalDate startDate, LocalDate endDate, Long afterId, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidParameterException("The page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        return reservationRepository.findReservationsAfter(ObjectUtils.firstNonNull(afterId, 0L), status == null ? null : status.name(),
+                startDate, endDate, PageRequest.ofSize(limit));
+    }
+
+    @Transactional(readOnly = true)
+    public void exportReservations(Status status, LocalDate startDate, LocalDate endDate, ExportFormat format, OutputStream outputStream) throws IOException {
+        int exported = 0;
+        try (Stream<ReservationEntity> reservations = reservationRepository.streamReservations(status == null ? null : status.name(), startDate, endDate);
+             ReservationExportWriter writer = new ReservationExportWriter(format, outputStream, objectMapper)) {
+            Iterator<ReservationEntity> iterator = reservations.iterator();
+            while (iterator.hasNext()) {
+                ReservationEntity reservation = iterator.next();
+                writer.write(reservation);
+                // keep the persistence context from growing with the table
+                entityManager.detach(reservation);
+                if (++exported % ReservationRepository.STREAM_FETCH_SIZE == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        logger.info("Exported {} reservations.", exported);
     }
 
     @Transactional(readOnly = true)
     public Optional<Reservation> retrieveReservation(String id) {
-        return Optional.ofNullable(reservationEntityBoundMapper.map(reservationRepository.findActiveReservationByExternalIdentifier(id)));
+        return reservationCache.get(id, externalIdentifier -> {
+            ReservationEntity reservationEntity = reservationStore.findActive(externalIdentifier);
+            Timer.Sample sample = bookingMetrics.startPhase();
+            Reservation reservation = reservationMapper.toReservation(reservationEntity);
+            bookingMetrics.endPhase(sample, "retrieve", "map");
+            return reservation;
+        });
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = {NoAvailabilityException.class, InvalidParameterException.class}, isolation = Isolation.SERIALIZABLE)
-    public synchronized String createReservation(ReservationRequest reservationRequest) {
-        // 1. Validate date range for reservation
-        validateDatesForReservation(reservationRequest.getCheckinDate(), reservationRequest.getCheckoutDate());
+    public CacheStatistics retrieveReservationCacheStatistics() {
+        return reservationCache.statistics();
+    }
 
-        //2. Create reservation entity
-        ReservationEntity reservationEntity = populateReservationEntity(reservationRequest);
-        reservationRepository.saveAndFlush(reservationEntity);
+    public String createReservation(ReservationRequest reservationRequest) {
+        return createReservation(reservationRequest, null);
+    }
+
+    public String createReservation(ReservationRequest reservationRequest, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return transactionRetryTemplate.executeInNewTransaction(() -> createReservationOnce(reservationRequest, null, null));
+        }
+        if (idempotencyKey.trim().isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new InvalidParameterException("The Idempotency-Key must have between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters.");
+        }
+        String requestHash = hashReservationRequest(reservationRequest);
+        return idempotencyKeyStore.execute(idempotencyKey, requestHash,
+                () -> transactionRetryTemplate.executeInNewTransaction(() -> createReservationOnce(reservationRequest, idempotencyKey, requestHash)));
+    }
 
-        logger.debug(new StringBuilder().append("Successfully created reservation: ").append(reservationEntity).toString());
+    private String createReservationOnce(ReservationRequest reservationRequest, String idempotencyKey, String requestHash) {
+        // 1. Validate date range for reservation and claim its dates on a unit of the site
+        ReservationEntity reservationEntity = claimReservation("create", reservationRequest);
+
+        //2. Create reservation entity and claim its dates in the database, if the booking mode does
+        Timer.Sample sample = bookingMetrics.startPhase();
+        reservationStore.save(reservationEntity);
+        dayClaimStore.claim(reservationEntity.getId(), reservationEntity.getUnitId(), reservationEntity.getCheckinDate(), reservationEntity.getCheckoutDate());
+        reservationLedger.recordCreated(reservationEntity.getId(), reservationEntity.getUnitId(), reservationEntity.getCheckinDate(), reservationEntity.getCheckoutDate());
+        occupancyChangeLog.record(reservationEntity.getSiteId(), reservationEntity.getUnitId(), reservationEntity.getCheckinDate(), reservationEntity.getCheckoutDate(),
+                reservationEntity.getExternalIdentifier());
+        if (idempotencyKey != null) {
+            idempotencyKeyStore.record(idempotencyKey, requestHash, reservationEntity.getExternalIdentifier());
+        }
+        bookingMetrics.endPhase(sample, "create", "persist");
+
+        logger.debug("Successfully created reservation: {}", reservationEntity);
         return reservationEntity.getExternalIdentifier();
     }
 
-    @Transactional
+    public List<BatchReservationResult> createReservations(List<ReservationRequest> reservationRequests) {
+        if (reservationRequests.isEmpty() || reservationRequests.size() > MAX_BATCH_SIZE) {
+            throw new InvalidParameterException("A batch must contain between 1 and " + MAX_BATCH_SIZE + " reservations.");
+        }
+        return transactionRetryTemplate.executeInNewTransaction(() -> createReservationBatch(reservationRequests));
+    }
+
+    private List<BatchReservationResult> createReservationBatch(List<ReservationRequest> reservationRequests) {
+
+        // 1. Validate every request and claim its dates, the requests of the batch compete with each other like separate requests
+        List<BatchReservationResult> results = new ArrayList<>(reservationRequests.size());
+        List<ReservationEntity> reservationEntities = new ArrayList<>(reservationRequests.size());
+        for (int i = 0; i < reservationRequests.size(); i++) {
+            try {
+                validateReservationRequest(reservationRequests.get(i));
+                ReservationEntity reservationEntity = claimReservation("batch-create", reservationRequests.get(i));
+                reservationEntities.add(reservationEntity);
+                results.add(new BatchReservationResult(i, reservationEntity.getExternalIdentifier(), null));
+            } catch (InvalidParameterException | NoAvailabilityException | ResourceNotFoundException e) {
+                results.add(new BatchReservationResult(i, null, e.getMessage()));
+            }
+        }
+
+        // 2. Create the reservation entities with a single flush, sent as JDBC batches, and claim their dates in the database
+        Timer.Sample sample = bookingMetrics.startPhase();
+        reservationStore.saveAll(reservationEntities);
+        reservationEntities.forEach(reservationEntity -> {
+            dayClaimStore.claim(reservationEntity.getId(), reservationEntity.getUnitId(), reservationEntity.getCheckinDate(), reservationEntity.getCheckoutDate());
+            reservationLedger.recordCreated(reservationEntity.getId(), reservationEntity.getUnitId(), reservationEntity.getCheckinDate(), reservationEntity.getCheckoutDate());
+            occupancyChangeLog.record(reservationEntity.getSiteId(), reservationEntity.getUnitId(), reservationEntity.getCheckinDate(), reservationEntity.getCheckoutDate(),
+                    reservationEntity.getExternalIdentifier());
+        });
+        bookingMetrics.endPhase(sample, "batch-create", "persist");
+        logger.debug("Successfully created {} of {} batched reservations", reservationEntities.size(), reservationRequests.size());
+        return results;
+    }
+
     public Reservation updateReservation(String id, ReservationRequest reservationRequested) {
-        // 1. Fetch reservation
-        ReservationEntity existingReservation = reservationRepository.findActiveReservationByExternalIdentifier(id);
+        return updateReservation(id, reservationRequested, null);
+    }
+
+    public Reservation updateReservation(String id, ReservationRequest reservationRequested, Long expectedVersion) {
+        return reservationStore.mutate(id, () -> transactionRetryTemplate.execute(() -> updateReservationOnce(id, reservationRequested, expectedVersion)));
+    }
+
+    private Reservation updateReservationOnce(String id, ReservationRequest reservationRequested, Long expectedVersion) {
+        // 1. Fetch reservation, at the version the client last read if given
+        ReservationEntity existingReservation = reservationStore.findActive(id);
         if (existingReservation == null) {
             throw new ResourceNotFoundException("Reservation with ID: " + id + " does not exist.");
         }
-        logger.info("Found reservation with ID : " + id);
+        if (expectedVersion != null && !expectedVersion.equals(existingReservation.getVersion())) {
+            throw new PreconditionFailedException("Reservation with ID: " + id + " has been modified since version " + expectedVersion + ".");
+        }
+        logger.info("Found reservation with ID : {}", id);
 
-        // 2. Validate date range for reservation if it applies
+        // 2. Validate date range for reservation and claim the new dates if it applies
+        Timer.Sample sample = bookingMetrics.startPhase();
+        if ((reservationRequested.getSiteId() != null && !reservationRequested.getSiteId().equals(existingReservation.getSiteId()))
+                || (reservationRequested.getUnitId() != null && !reservationRequested.getUnitId().equals(existingReservation.getUnitId()))) {
+            throw new InvalidParameterException("A reservation cannot be moved to another site or unit.");
+        }
+        LocalDate changedStartDate = null;
+        LocalDate changedEndDate = null;
         if (reservationRequested.getCheckinDate() != null || reservationRequested.getCheckoutDate() != null) {
-            LocalDate newCheckinDate = ObjectUtils.firstNonNull(reservationRequested.getCheckinDate(), existingReservation.getCheckinDate());
-            LocalDate newCheckoutDate = ObjectUtils.firstNonNull(reservationRequested.getCheckoutDate(), existingReservation.getCheckoutDate());
+            Long unitId = existingReservation.getUnitId();
+            LocalDate oldCheckinDate = existingReservation.getCheckinDate();
+            LocalDate oldCheckoutDate = existingReservation.getCheckoutDate();
+            LocalDate newCheckinDate = ObjectUtils.firstNonNull(reservationRequested.getCheckinDate(), oldCheckinDate);
+            LocalDate newCheckoutDate = ObjectUtils.firstNonNull(reservationRequested.getCheckoutDate(), oldCheckoutDate);
             validateDatesForReservation(newCheckinDate, newCheckoutDate);
+            bookingMetrics.endPhase(sample, "update", "validation");
+            sample = bookingMetrics.startPhase();
+            if (!occupancyIndex.claim(unitId, newCheckinDate, newCheckoutDate, oldCheckinDate, oldCheckoutDate)) {
+                throw new NoAvailabilityException("There are no availabilities for the dates provided.");
+            }
+            long siteId = existingReservation.getSiteId();
+            runAfterRollback(() -> {
+                occupancyIndex.release(unitId, newCheckinDate, newCheckoutDate, oldCheckinDate, oldCheckoutDate);
+                waitlist.offer(siteId, newCheckinDate, newCheckoutDate);
+            });
+            runAfterCommit(() -> {
+                occupancyIndex.release(unitId, oldCheckinDate, oldCheckoutDate, newCheckinDate, newCheckoutDate);
+                waitlist.offer(siteId, oldCheckinDate, oldCheckoutDate);
+            });
+            dayClaimStore.claim(existingReservation.getId(), unitId, newCheckinDate, newCheckoutDate, oldCheckinDate, oldCheckoutDate);
+            dayClaimStore.release(existingReservation.getId(), newCheckinDate, newCheckoutDate);
+            reservationLedger.recordUpdated(existingReservation.getId(), unitId, oldCheckinDate, oldCheckoutDate, newCheckinDate, newCheckoutDate);
+            changedStartDate = newCheckinDate.isBefore(oldCheckinDate) ? newCheckinDate : oldCheckinDate;
+            changedEndDate = newCheckoutDate.isAfter(oldCheckoutDate) ? newCheckoutDate : oldCheckoutDate;
+            bookingMetrics.endPhase(sample, "update", "claim");
+        } else {
+            bookingMetrics.endPhase(sample, "update", "validation");
         }
 
         // 3. Update reservation info
-        updateExistingReservation(existingReservation, reservationRequested);
-        reservationRepository.saveAndFlush(existingReservation);
-        logger.debug(new StringBuilder().append("Successfully updated reservation: ").append(existingReservation).toString());
-        return reservationEntityBoundMapper.map(existingReservation);
+        sample = bookingMetrics.startPhase();
+        reservationMapper.updateReservationEntity(reservationRequested, existingReservation);
+        reservationStore.save(existingReservation);
+        occupancyChangeLog.record(existingReservation.getSiteId(), existingReservation.getUnitId(), changedStartDate, changedEndDate, id);
+        // invalidated before the commit, so the update is never visible while the cache still serves the old reservation,
+        // and again after it, for a lookup that cached the old reservation in between
+        runBeforeCommit(() -> reservationCache.invalidate(id));
+        runAfterCommit(() -> reservationCache.invalidate(id));
+        bookingMetrics.endPhase(sample, "update", "persist");
+        logger.debug("Successfully updated reservation: {}", existingReservation);
+
+        sample = bookingMetrics.startPhase();
+        Reservation updatedReservation = reservationMapper.toReservation(existingReservation);
+        bookingMetrics.endPhase(sample, "update", "map");
+        return updatedReservation;
     }
 
-    @Transactional
     public void cancelReservation(String id) {
-        // 1. Fetch reservation
-        ReservationEntity existingReservation = reservationRepository.findActiveReservationByExternalIdentifier(id);
-        if (existingReservation == null) {
-            throw new ResourceNotFoundException("Reservation with ID: " + id + " does not exist.");
-        }
-        logger.info("Found reservation with ID : " + id);
+        reservationStore.mutate(id, () -> transactionRetryTemplate.execute(() -> {
+            // 1. Fetch reservation
+            ReservationEntity existingReservation = reservationStore.findActive(id);
+            if (existingReservation == null) {
+                throw new ResourceNotFoundException("Reservation with ID: " + id + " does not exist.");
+            }
+            logger.info("Found reservation with ID : {}", id);
+
+            // 2. Update reservation status and free its dates
+            Timer.Sample sample = bookingMetrics.startPhase();
+            existingReservation.setStatus(Status.CANCELLED.name());
+            logger.info("Successfully cancelled reservation with external identifier: {}", existingReservation.getExternalIdentifier());
+            reservationStore.save(existingReservation);
+            dayClaimStore.release(existingReservation.getId());
+            reservationLedger.recordCancelled(existingReservation.getId(), existingReservation.getUnitId(), existingReservation.getCheckinDate(), existingReservation.getCheckoutDate());
+            occupancyChangeLog.record(existingReservation.getSiteId(), existingReservation.getUnitId(), existingReservation.getCheckinDate(), existingReservation.getCheckoutDate(), id);
+            runBeforeCommit(() -> reservationCache.invalidate(id));
+            runAfterCommit(() -> {
+                reservationCache.invalidate(id);
+                occupancyIndex.release(existingReservation.getUnitId(), existingReservation.getCheckinDate(), existingReservation.getCheckoutDate());
+                waitlist.offer(existingReservation.getSiteId(), existingReservation.getCheckinDate(), existingReservation.getCheckoutDate());
+            });
+            bookingMetrics.endPhase(sample, "cancel", "persist");
+            return null;
+        }));
+    }
 
-        // 2. Update reservation status
-        existingReservation.setStatus(Status.CANCELLED.name());
-        logger.info(new StringBuilder().append("Successfully cancelled reservation with external identifier: ").append(existingReservation.getExternalIdentifier()).toString());
-        reservationRepository.saveAndFlush(existingReservation);
+    public boolean isSlotAvailableForNewReservation(Long siteId, LocalDate startDate, LocalDate endDate) {
+       return occupancyIndex.isAvailable(resolveSiteId(siteId), startDate, endDate);
+    }
+
+    public Hold placeHold(StayRequest stayRequest) {
+        long siteId = resolveSiteId(stayRequest.getSiteId());
+        validateDatesForReservation(stayRequest.getCheckinDate(), stayRequest.getCheckoutDate());
+        Long unitId = claimUnit(siteId, stayRequest.getUnitId(), stayRequest.getCheckinDate(), stayRequest.getCheckoutDate());
+        if (unitId == null) {
+            throw new NoAvailabilityException("There are no availabilities for the dates provided.");
+        }
+        try {
+            return waitlist.hold(siteId, unitId, stayRequest.getCheckinDate(), stayRequest.getCheckoutDate());
+        } catch (RuntimeException e) {
+            occupancyIndex.release(unitId, stayRequest.getCheckinDate(), stayRequest.getCheckoutDate());
+            throw e;
+        }
     }
 
-    public synchronized boolean isSlotAvailableForNewReservation(LocalDate startDate, LocalDate endDate) {
-       return reservationRepository.findReservationsForGivenPeriodForCreation(startDate, endDate).isEmpty();
+    public void releaseHold(String holdId) {
+        if (!waitlist.release(holdId)) {
+            throw new ResourceNotFoundException("Hold with ID: " + holdId + " does not exist or has expired.");
+        }
     }
 
-    private ReservationEntity populateReservationEntity(ReservationRequest reservation) {
-        //Can be changed to use the orika mapper instead
-        ReservationEntity reservationEntity = new ReservationEntity();
-        reservationEntity.setFirstName(reservation.getFirstName());
-        reservationEntity.setLastName(reservation.getLastName());
-        reservationEntity.setEmail(reservation.getEmail());
-        reservationEntity.setStatus(Status.ACTIVE.name());
-        reservationEntity.setCheckinDate(reservation.getCheckinDate());
-        reservationEntity.setCheckoutDate(reservation.getCheckoutDate());
-        reservationEntity.setNumOfGuests(reservation.getNumOfGuests() == 0 ? DEFAULT_NUM_OF_GUESTS : reservation.getNumOfGuests());
-        reservationEntity.setExternalIdentifier(externalIdentifierGenerator.getNext());
-        return reservationEntity;
+    public WaitlistEntry joinWaitlist(StayRequest stayRequest) {
+        long siteId = resolveSiteId(stayRequest.getSiteId());
+        validateDatesForReservation(stayRequest.getCheckinDate(), stayRequest.getCheckoutDate());
+        return waitlist.join(siteId, stayRequest.getCheckinDate(), stayRequest.getCheckoutDate());
     }
-    private void updateExistingReservation(ReservationEntity existingReservation, ReservationRequest reservationRequested) {
-        //Can be changed to use the orika mapper instead
-        existingReservation.setFirstName(ObjectUtils.firstNonNull(reservationRequested.getFirstName(), existingReservation.getFirstName()));
-        existingReservation.setLastName(ObjectUtils.firstNonNull(reservationRequested.getLastName(), existingReservation.getLastName()));
-        existingReservation.setEmail(ObjectUtils.firstNonNull(reservationRequested.getEmail(), existingReservation.getEmail()));
-        existingReservation.setNumOfGuests(reservationRequested.getNumOfGuests() == 0 ? DEFAULT_NUM_OF_GUESTS : reservationRequested.getNumOfGuests());
-        existingReservation.setCheckinDate(ObjectUtils.firstNonNull(reservationRequested.getCheckinDate(), existingReservation.getCheckinDate()));
-        existingReservation.setCheckoutDate(ObjectUtils.firstNonNull(reservationRequested.getCheckoutDate(), existingReservation.getCheckoutDate()));
+
+    public Optional<WaitlistEntry> retrieveWaitlistEntry(String entryId) {
+        return waitlist.retrieve(entryId);
     }
 
-    private Map<LocalDate, Boolean> retrieveReservedDates(LocalDate startDate, LocalDate endDate) {
-        Map<LocalDate, Boolean> reservedDates = new ConcurrentHashMap();
-        List<ReservationEntity> reservationsList = reservationRepository.findReservationsForGivenPeriod(startDate, endDate);
+    public void leaveWaitlist(String entryId) {
+        if (!waitlist.leave(entryId)) {
+            throw new ResourceNotFoundException("Waitlist entry with ID: " + entryId + " does not exist or is no longer waiting.");
+        }
+    }
 
-        reservationsList.forEach(reservation -> {
-            LocalDate tempCheckinDate = reservation.getCheckinDate().isBefore(startDate) ? startDate : reservation.getCheckinDate();
-            LocalDate tempCheckoutDate = reservation.getCheckoutDate().isAfter(endDate) ? endDate : reservation.getCheckoutDate();
+    /**
+     * Validates the dates of the request, claims them on a unit of the site, or takes over the days held for it,
+     * and returns the reservation to persist. The claim is released if the current transaction does not commit.
+     */
+    private ReservationEntity claimReservation(String operation, ReservationRequest reservationRequest) {
+        Timer.Sample sample = bookingMetrics.startPhase();
+        long siteId = resolveSiteId(reservationRequest.getSiteId());
+        validateDatesForReservation(reservationRequest.getCheckinDate(), reservationRequest.getCheckoutDate());
+        bookingMetrics.endPhase(sample, operation, "validation");
 
-            while (tempCheckinDate.isBefore(tempCheckoutDate.plusDays(1))) {
-                reservedDates.put(tempCheckinDate, true);
-                tempCheckinDate = tempCheckinDate.plusDays(1);
-            }
+        sample = bookingMetrics.startPhase();
+        Long unitId;
+        if (reservationRequest.getHoldId() == null) {
+            unitId = claimUnit(siteId, reservationRequest.getUnitId(), reservationRequest.getCheckinDate(), reservationRequest.getCheckoutDate());
+        } else {
+            unitId = waitlist.take(reservationRequest.getHoldId(), siteId, reservationRequest.getCheckinDate(), reservationRequest.getCheckoutDate());
+        }
+        if (unitId == null) {
+            throw new NoAvailabilityException("There are no availabilities for the dates provided.");
+        }
+        runAfterRollback(() -> {
+            occupancyIndex.release(unitId, reservationRequest.getCheckinDate(), reservationRequest.getCheckoutDate());
+            waitlist.offer(siteId, reservationRequest.getCheckinDate(), reservationRequest.getCheckoutDate());
         });
-        return reservedDates;
+        bookingMetrics.endPhase(sample, operation, "claim");
+        return reservationMapper.toReservationEntity(reservationRequest, siteId, unitId, externalIdentifierGenerator.getNext());
     }
-    private synchronized void validateDatesForReservation(LocalDate newCheckinDate, LocalDate newCheckoutDate) {
-        // 1. Check if dates are valid and respect maximum duration.
-        if (!isDateRangeValidForReservation(newCheckinDate, newCheckoutDate)) {
-            throw new InvalidParameterException("The date range entered is incorrect.");
+
+    private String hashReservationRequest(ReservationRequest reservationRequest) {
+        try {
+            return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(reservationRequest));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the reservation request.", e);
         }
+    }
 
-        // 2. Check if dates are available
-        if (!isSlotAvailableForNewReservation(newCheckinDate, newCheckoutDate)) {
-            throw new NoAvailabilityException("There are no availabilities for the dates provided.");
+    private void validateReservationRequest(ReservationRequest reservationRequest) {
+        Set<ConstraintViolation<ReservationRequest>> violations = validator.validate(reservationRequest, OnCreate.class, Default.class);
+        if (!violations.isEmpty()) {
+            throw new InvalidParameterException(violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(" ")));
+        }
+    }
+
+    private long resolveSiteId(Long siteId) {
+        long resolvedSiteId = siteId == null ? siteService.getDefaultSiteId() : siteId;
+        if (occupancyIndex.countUnits(resolvedSiteId) == 0) {
+            throw new ResourceNotFoundException("Site with ID: " + resolvedSiteId + " does not exist.");
+        }
+        return resolvedSiteId;
+    }
+
+    private Long claimUnit(long siteId, Long unitId, LocalDate checkinDate, LocalDate checkoutDate) {
+        if (unitId == null) {
+            return occupancyIndex.claimAnyUnit(siteId, checkinDate, checkoutDate);
+        }
+        if (!occupancyIndex.hasUnit(siteId, unitId)) {
+            throw new ResourceNotFoundException("Unit with ID: " + unitId + " does not exist in site with ID: " + siteId + ".");
+        }
+        return occupancyIndex.claim(unitId, checkinDate, checkoutDate) ? unitId : null;
+    }
+
+    private void validateDatesForReservation(LocalDate newCheckinDate, LocalDate newCheckoutDate) {
+        // Check if dates are valid and respect maximum duration.
+        if (!isDateRangeValidForReservation(newCheckinDate, newCheckoutDate)) {
+            throw new InvalidParameterException("The date range entered is incorrect.");
         }
     }
 
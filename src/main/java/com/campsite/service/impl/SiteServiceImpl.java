@@ -0,0 +1,90 @@
+package com.campsite.service.impl;
+
+import com.campsite.common.cluster.OccupancyChangeLog;
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.controller.utils.SiteRequest;
+import com.campsite.model.Site;
+import com.campsite.persistence.entity.SiteEntity;
+import com.campsite.persistence.entity.UnitEntity;
+import com.campsite.persistence.repository.SiteRepository;
+import com.campsite.persistence.repository.UnitRepository;
+import com.campsite.service.SiteService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.campsite.common.transaction.TransactionCallbacks.runAfterCommit;
+
+@Service
+public class SiteServiceImpl implements SiteService {
+
+    private static final Logger logger = LogManager.getLogger(SiteServiceImpl.class);
+    private static final String DEFAULT_SITE_NAME = "Campsite";
+
+    @Autowired
+    private SiteRepository siteRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    @Autowired
+    private OccupancyChangeLog occupancyChangeLog;
+
+    private Long defaultSiteId;
+
+    /**
+     * Makes sure there is a site to book when no site has been set up, the original single campsite.
+     */
+    @PostConstruct
+    public void loadDefaultSite() {
+        SiteEntity defaultSite = siteRepository.findFirstByOrderByIdAsc();
+        if (defaultSite == null) {
+            defaultSite = siteRepository.save(new SiteEntity(null, DEFAULT_SITE_NAME));
+            unitRepository.saveAll(populateUnitEntities(defaultSite, 1));
+            logger.info("Created default site with ID : {}", defaultSite.getId());
+        }
+        defaultSiteId = defaultSite.getId();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Site> retrieveSites() {
+        return siteRepository.findAll().stream()
+                .map(site -> new Site(site.getId(), site.getName(), occupancyIndex.countUnits(site.getId())))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public Site createSite(SiteRequest siteRequest) {
+        // 1. Create site and its units
+        SiteEntity siteEntity = siteRepository.save(new SiteEntity(null, siteRequest.getName()));
+        List<UnitEntity> unitEntities = unitRepository.saveAll(populateUnitEntities(siteEntity, siteRequest.getNumOfUnits()));
+
+        // 2. Make the units bookable once they are committed, here and on the other nodes
+        unitEntities.forEach(unit -> occupancyChangeLog.record(unit.getSiteId(), unit.getId(), null, null, null));
+        runAfterCommit(() -> unitEntities.forEach(unit -> occupancyIndex.registerUnit(unit.getSiteId(), unit.getId())));
+        logger.info("Successfully created site with ID : {}", siteEntity.getId());
+        return new Site(siteEntity.getId(), siteEntity.getName(), unitEntities.size());
+    }
+
+    public Long getDefaultSiteId() {
+        return defaultSiteId;
+    }
+
+    private List<UnitEntity> populateUnitEntities(SiteEntity siteEntity, int numOfUnits) {
+        List<UnitEntity> unitEntities = new ArrayList<>(numOfUnits);
+        for (int i = 1; i <= numOfUnits; i++) {
+            unitEntities.add(new UnitEntity(null, siteEntity.getId(), "Unit " + i));
+        }
+        return unitEntities;
+    }
+}
@@ -0,0 +1,50 @@
+package com.campsite.service.mapper;
+
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.model.Reservation;
+import com.campsite.persistence.entity.ReservationEntity;
+import org.mapstruct.*;
+
+/**
+ * Mappings between reservation requests, entities and models, generated at compile time by MapStruct.
+ * A target property that no mapping covers fails the build.
+ */
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface ReservationMapper {
+    int DEFAULT_NUM_OF_GUESTS = 4;
+
+    Reservation toReservation(ReservationEntity reservationEntity);
+
+    /**
+     * New active reservation for the request, booked on the given unit of the given site.
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "siteId", source = "siteId")
+    @Mapping(target = "unitId", source = "unitId")
+    @Mapping(target = "status", constant = "ACTIVE")
+    @Mapping(target = "externalIdentifier", source = "externalIdentifier")
+    @Mapping(target = "numOfGuests", source = "reservationRequest.numOfGuests", qualifiedByName = "numOfGuestsOrDefault")
+    @Mapping(target = "createdOn", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    ReservationEntity toReservationEntity(ReservationRequest reservationRequest, Long siteId, Long unitId, String externalIdentifier);
+
+    /**
+     * Copies the properties present in the request onto the reservation, the absent ones are left untouched. The site
+     * and unit cannot be changed.
+     */
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "siteId", ignore = true)
+    @Mapping(target = "unitId", ignore = true)
+    @Mapping(target = "status", ignore = true)
+    @Mapping(target = "numOfGuests", qualifiedByName = "numOfGuestsOrDefault")
+    @Mapping(target = "createdOn", ignore = true)
+    @Mapping(target = "externalIdentifier", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    void updateReservationEntity(ReservationRequest reservationRequest, @MappingTarget ReservationEntity reservationEntity);
+
+    @Named("numOfGuestsOrDefault")
+    default int numOfGuestsOrDefault(Integer numOfGuests) {
+        return numOfGuests == null || numOfGuests == 0 ? DEFAULT_NUM_OF_GUESTS : numOfGuests;
+    }
+}
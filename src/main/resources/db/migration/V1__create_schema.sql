@@ -0,0 +1,36 @@
+create sequence hibernate_sequence start with 1 increment by 1;
+create sequence reservation_seq start with 1 increment by 50;
+create sequence unit_seq start with 1 increment by 50;
+
+create table sites (
+    id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table units (
+    id bigint not null,
+    site_id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create index idx_units_site on units (site_id);
+
+create table reservations (
+    id bigint not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    email varchar(255) not null,
+    site_id bigint not null,
+    unit_id bigint not null,
+    checkin_date date not null,
+    checkout_date date not null,
+    status varchar(255),
+    num_guests integer not null,
+    created_date timestamp,
+    external_identifier varchar(255),
+    version bigint,
+    primary key (id),
+    constraint uk_reservations_external_identifier unique (external_identifier)
+);
@@ -0,0 +1,2 @@
+-- Interval overlap lookups: status = ? and checkin_date <= ? and checkout_date >= ?
+create index idx_reservations_status_period on reservations (status, checkin_date, checkout_date);
@@ -0,0 +1,9 @@
+-- Optimistic booking mode: one row per unit and day, the primary key rejects a second claim of the same day
+create table unit_day_claims (
+    unit_id bigint not null,
+    claim_date date not null,
+    reservation_id bigint not null,
+    primary key (unit_id, claim_date)
+);
+
+create index idx_unit_day_claims_reservation on unit_day_claims (reservation_id);
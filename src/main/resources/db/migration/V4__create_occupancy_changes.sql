@@ -0,0 +1,14 @@
+-- Cluster mode: committed changes of the occupied days and units, polled by the other nodes
+create table occupancy_changes (
+    id bigint auto_increment not null,
+    node_id varchar(36) not null,
+    site_id bigint not null,
+    unit_id bigint not null,
+    start_date date,
+    end_date date,
+    external_identifier varchar(255),
+    created_date timestamp default current_timestamp not null,
+    primary key (id)
+);
+
+create index idx_occupancy_changes_created on occupancy_changes (created_date);
@@ -0,0 +1,10 @@
+-- Idempotent creates: the reservation created for every Idempotency-Key, written in the transaction of the reservation
+create table idempotency_keys (
+    idempotency_key varchar(255) not null,
+    request_hash varchar(32) not null,
+    external_identifier varchar(255) not null,
+    created_date timestamp default current_timestamp not null,
+    primary key (idempotency_key)
+);
+
+create index idx_idempotency_keys_created on idempotency_keys (created_date);
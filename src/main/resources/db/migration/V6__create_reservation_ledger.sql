@@ -0,0 +1,23 @@
+-- Reservation ledger: append-only events of the reservations, and snapshots of the occupancy they add up to
+create table reservation_events (
+    id bigint auto_increment not null,
+    event_type varchar(16) not null,
+    reservation_id bigint not null,
+    unit_id bigint not null,
+    start_date date not null,
+    end_date date not null,
+    previous_start_date date,
+    previous_end_date date,
+    created_date timestamp default current_timestamp not null,
+    primary key (id)
+);
+
+create index idx_reservation_events_created on reservation_events (created_date);
+
+create table occupancy_snapshots (
+    id bigint auto_increment not null,
+    last_event_id bigint not null,
+    state blob not null,
+    created_date timestamp default current_timestamp not null,
+    primary key (id)
+);
@@ -0,0 +1,7 @@
+-- Cluster mode: the node ids of the external identifiers, each leased by one running node and renewed while it polls
+create table cluster_nodes (
+    node_id integer not null,
+    instance_id varchar(36) not null,
+    heartbeat timestamp not null,
+    primary key (node_id)
+);
@@ -0,0 +1,117 @@
+package com.campsite;
+
+import com.campsite.common.admission.AdmissionControl;
+import com.campsite.common.admission.impl.AdaptiveAdmissionControlImpl;
+import com.campsite.exceptions.NoAvailabilityException;
+import com.campsite.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"admission.limit.initial=1", "admission.limit.min=1", "admission.limit.max=1",
+        "admission.queue.capacity-per-date=1", "admission.queue.timeout=1s", "admission.sold-out.retry-after=60s"})
+@AutoConfigureMockMvc
+public class AdmissionControlTest extends ReservationTestSupport {
+    private static final LocalDate CHECKIN_DATE = LocalDate.now().plusDays(10);
+    private static final LocalDate CHECKOUT_DATE = LocalDate.now().plusDays(11);
+
+    @Autowired
+    private AdmissionControl admissionControl;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Test: a create for fully booked dates is answered with 429 and a Retry-After, unless it may be a retry.
+     */
+    @Test
+    public void testSoldOutDatesAreTurnedAway() throws Exception {
+        try {
+            while (true) {
+                reservationService.createReservation(createReservationRequest(CHECKIN_DATE, CHECKOUT_DATE));
+            }
+        } catch (NoAvailabilityException e) {
+            // every unit is booked
+        }
+        String body = "{\"firstName\":\"Nat\",\"lastName\":\"V\",\"email\":\"n.v2@gm.com\",\"checkinDate\":\"" + CHECKIN_DATE
+                + "\",\"checkoutDate\":\"" + CHECKOUT_DATE + "\"}";
+        mockMvc.perform(post("/api/v1/reservation").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "60"));
+        mockMvc.perform(post("/api/v1/reservation").header("Idempotency-Key", UUID.randomUUID().toString())
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(1.0, meterRegistry.get(AdaptiveAdmissionControlImpl.REJECTION_COUNTER).tag("reason", "sold-out").counter().count());
+    }
+
+    /**
+     * Test: past the limit, creates wait in the queue of their date, and are turned away when it is full or they waited too long.
+     */
+    @Test
+    public void testFullQueuesAndLongWaitsAreTurnedAway() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        try {
+            Future<String> first = executor.submit(() -> admissionControl.admit(createReservationRequest(CHECKIN_DATE, CHECKOUT_DATE), false, () -> {
+                running.countDown();
+                await(finish);
+                return "first";
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            Future<String> queued = executor.submit(() -> admissionControl.admit(createReservationRequest(CHECKIN_DATE, CHECKOUT_DATE), false, () -> "queued"));
+            awaitQueueDepth(1);
+
+            TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                    () -> admissionControl.admit(createReservationRequest(CHECKIN_DATE, CHECKOUT_DATE), false, () -> "rejected"));
+            assertTrue(rejected.getRetryAfter().getSeconds() >= 1);
+            ExecutionException timedOut = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+            assertTrue(timedOut.getCause() instanceof TooManyRequestsException);
+
+            finish.countDown();
+            assertEquals("first", first.get(5, TimeUnit.SECONDS));
+            assertEquals("admitted", admissionControl.admit(createReservationRequest(CHECKIN_DATE, CHECKOUT_DATE), false, () -> "admitted"));
+        } finally {
+            finish.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(1.0, meterRegistry.get(AdaptiveAdmissionControlImpl.REJECTION_COUNTER).tag("reason", "queue-full").counter().count());
+        assertEquals(1.0, meterRegistry.get(AdaptiveAdmissionControlImpl.REJECTION_COUNTER).tag("reason", "timeout").counter().count());
+        assertEquals(0.0, meterRegistry.get(AdaptiveAdmissionControlImpl.QUEUE_DEPTH_GAUGE).gauge().value());
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(AdaptiveAdmissionControlImpl.QUEUE_DEPTH_GAUGE).gauge().value() != depth) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
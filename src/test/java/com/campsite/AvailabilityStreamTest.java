@@ -0,0 +1,78 @@
+package com.campsite;
+
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.common.stream.AvailabilityStreams;
+import com.campsite.service.SiteService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "availability.stream.check-interval=20ms")
+public class AvailabilityStreamTest extends ReservationTestSupport {
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private SiteService siteService;
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+    @Autowired
+    private AvailabilityStreams availabilityStreams;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    /**
+     * Test: a stream sends the calendar when opened, and again once a date is fully booked.
+     */
+    @Test
+    public void testStreamSendsChangedCalendar() throws Exception {
+        LocalDate bookedDate = LocalDate.now().plusDays(3);
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/availabilities/stream")).build();
+        CompletableFuture<HttpResponse<Stream<String>>> response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofLines());
+        response.thenAccept(lines -> lines.body().filter(line -> line.startsWith("data:")).forEach(events::add));
+
+        String first = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertTrue(first.contains(bookedDate.toString()));
+        assertEquals(200, response.get().statusCode());
+
+        int units = occupancyIndex.countUnits(siteService.getDefaultSiteId());
+        for (int i = 0; i < units; i++) {
+            reservationService.createReservation(createReservationRequest(bookedDate, bookedDate.plusDays(1)));
+        }
+        String changed = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(changed);
+        assertFalse(changed.contains(bookedDate.toString()));
+
+        response.get().body().close();
+    }
+
+    /**
+     * Test: an invalid period fails the request instead of opening a stream.
+     */
+    @Test
+    public void testInvalidPeriodIsRejected() throws Exception {
+        int subscribers = availabilityStreams.countSubscribers();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/availabilities/stream?startDate="
+                + LocalDate.now().plusDays(5) + "&endDate=" + LocalDate.now().plusDays(2))).build();
+        assertEquals(400, httpClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(subscribers, availabilityStreams.countSubscribers());
+    }
+}
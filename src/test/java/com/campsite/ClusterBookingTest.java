@@ -0,0 +1,134 @@
+package com.campsite;
+
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.exceptions.DayClaimConflictException;
+import com.campsite.exceptions.NoAvailabilityException;
+import com.campsite.service.SiteService;
+import com.campsite.service.impl.ReservationServiceImpl;
+import org.h2.tools.Server;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.campsite.ReservationTestSupport.createReservationRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several nodes in cluster mode, each its own application context, sharing one H2 server.
+ */
+public class ClusterBookingTest {
+    private static final int NODE_COUNT = 3;
+
+    private Server server;
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private String url;
+
+    @Before
+    public void startNodes() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:cluster-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes.add(startNode("--reservation.external-identifier.node-id=" + i));
+        }
+    }
+
+    @After
+    public void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+        server.stop();
+    }
+
+    /**
+     * Test: overlapping bookings spread over all the nodes never double book a day, and every node learns of the
+     * days booked by the others.
+     */
+    @Test
+    public void testOverlappingBookingsAcrossNodesNeverDoubleBook() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(12);
+        final Random random = new Random(42);
+        final AtomicInteger created = new AtomicInteger();
+        for (int i = 0; i < 300; i++) {
+            ReservationServiceImpl reservationService = nodes.get(i % NODE_COUNT).getBean(ReservationServiceImpl.class);
+            LocalDate checkinDate = LocalDate.now().plusDays(1 + random.nextInt(28));
+            LocalDate checkoutDate = checkinDate.plusDays(1 + random.nextInt(3));
+            executor.execute(() -> {
+                try {
+                    reservationService.createReservation(createReservationRequest(checkinDate, checkoutDate));
+                    created.incrementAndGet();
+                } catch (NoAvailabilityException | DayClaimConflictException e) {
+                    // expected for the requests that lose the race
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        JdbcTemplate jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+        assertEquals(created.get(), jdbcTemplate.queryForObject("select count(*) from reservations where status = 'ACTIVE'", Integer.class));
+        List<LocalDate> bookedDates = new ArrayList<>();
+        for (long day = LocalDate.now().plusDays(1).toEpochDay(); day <= LocalDate.now().plusDays(32).toEpochDay(); day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            int bookings = jdbcTemplate.queryForObject("select count(*) from reservations where status = 'ACTIVE' and checkin_date <= ? and checkout_date >= ?",
+                    Integer.class, date, date);
+            assertTrue(bookings <= 1, "Date " + date + " is booked " + bookings + " times.");
+            if (bookings == 1) {
+                bookedDates.add(date);
+            }
+        }
+        assertFalse(bookedDates.isEmpty());
+
+        for (ConfigurableApplicationContext node : nodes) {
+            assertTrue(awaitOccupancy(node, bookedDates), "A node does not see every booked date as occupied.");
+        }
+    }
+
+    /**
+     * Test: a node does not start without a node id, or with the node id of a running node.
+     */
+    @Test
+    public void testNodeIdsAreRequiredAndUnique() {
+        assertThrows(BeanCreationException.class, this::startNode);
+        assertThrows(BeanCreationException.class, () -> startNode("--reservation.external-identifier.node-id=0"));
+
+        nodes.remove(0).close();
+        nodes.add(startNode("--reservation.external-identifier.node-id=0"));
+    }
+
+    private ConfigurableApplicationContext startNode(String... args) {
+        List<String> arguments = new ArrayList<>(List.of("--spring.datasource.url=" + url, "--booking.mode=optimistic", "--cluster.enabled=true",
+                "--cluster.change-log.poll-interval=50ms"));
+        arguments.addAll(List.of(args));
+        return new SpringApplicationBuilder(CampsiteReservationApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments.toArray(new String[0]));
+    }
+
+    private boolean awaitOccupancy(ConfigurableApplicationContext node, List<LocalDate> bookedDates) throws InterruptedException {
+        OccupancyIndex occupancyIndex = node.getBean(OccupancyIndex.class);
+        long siteId = node.getBean(SiteService.class).getDefaultSiteId();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (bookedDates.stream().allMatch(date -> occupancyIndex.countFreeUnits(siteId, date) == 0)) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+}
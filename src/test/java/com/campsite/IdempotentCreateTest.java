@@ -0,0 +1,95 @@
+package com.campsite;
+
+import com.campsite.exceptions.InvalidParameterException;
+import com.campsite.persistence.repository.IdempotencyKeyRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IdempotentCreateTest extends ReservationTestSupport {
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Override
+    protected void resetDependencies() {
+        idempotencyKeyRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Test: a retried create returns the reservation of the first attempt, and a key cannot be reused for another request.
+     */
+    @Test
+    public void testRetriedCreateReturnsFirstReservation() {
+        String key = UUID.randomUUID().toString();
+        String id = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)), key);
+
+        assertEquals(id, reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)), key));
+        assertEquals(1, reservationRepository.count());
+        assertThrows(InvalidParameterException.class,
+                () -> reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(3), LocalDate.now().plusDays(4)), key));
+    }
+
+    /**
+     * Test: concurrent creates with the same key book once and all return the same reservation.
+     */
+    @Test
+    public void testConcurrentDuplicatesBookOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(executor.submit(() -> reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(5), LocalDate.now().plusDays(6)), key)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        Set<String> distinctIds = new HashSet<>();
+        for (Future<String> id : ids) {
+            distinctIds.add(id.get());
+        }
+        assertEquals(1, distinctIds.size());
+        assertEquals(1, reservationRepository.count());
+    }
+
+    /**
+     * Test: the key is read from the Idempotency-Key header, and remembered in the database.
+     */
+    @Test
+    public void testIdempotencyKeyHeader() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = "{\"firstName\":\"Nat\",\"lastName\":\"V\",\"email\":\"n.v2@gm.com\",\"checkinDate\":\"" + LocalDate.now().plusDays(8)
+                + "\",\"checkoutDate\":\"" + LocalDate.now().plusDays(9) + "\"}";
+        String created = mockMvc.perform(post("/api/v1/reservation").header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(post("/api/v1/reservation").header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(created));
+
+        assertEquals(1, reservationRepository.count());
+        assertTrue(idempotencyKeyRepository.existsById(key));
+    }
+}
@@ -0,0 +1,105 @@
+package com.campsite;
+
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.exceptions.NoAvailabilityException;
+import com.campsite.exceptions.PreconditionFailedException;
+import com.campsite.model.Reservation;
+import com.campsite.persistence.repository.UnitDayClaimRepository;
+import com.campsite.service.SiteService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "booking.mode=optimistic")
+@AutoConfigureMockMvc
+public class OptimisticBookingTest extends ReservationTestSupport {
+    @Autowired
+    private SiteService siteService;
+    @Autowired
+    private UnitDayClaimRepository unitDayClaimRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Override
+    protected void resetDependencies() {
+        unitDayClaimRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Test: a reservation claims one row per day, moves them with its dates and frees them when cancelled.
+     */
+    @Test
+    public void testClaimsFollowTheReservation() {
+        String id = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(3)));
+        assertEquals(3, unitDayClaimRepository.count());
+
+        ReservationRequest update = new ReservationRequest();
+        update.setCheckinDate(LocalDate.now().plusDays(2));
+        update.setCheckoutDate(LocalDate.now().plusDays(4));
+        reservationService.updateReservation(id, update);
+        assertEquals(3, unitDayClaimRepository.count());
+
+        reservationService.cancelReservation(id);
+        assertEquals(0, unitDayClaimRepository.count());
+    }
+
+    /**
+     * Test: days claimed by another node are rejected by the database, and the retry reports them as unavailable.
+     */
+    @Test
+    public void testDaysClaimedByAnotherNodeAreNotBooked() {
+        long unitId = jdbcTemplate.queryForObject("select min(id) from units where site_id = ?", Long.class, siteService.getDefaultSiteId());
+        jdbcTemplate.update("insert into unit_day_claims (unit_id, claim_date, reservation_id) values (?, ?, ?)", unitId, Date.valueOf(LocalDate.now().plusDays(6)), -1L);
+
+        assertThrows(NoAvailabilityException.class, () -> reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(5), LocalDate.now().plusDays(7))));
+        assertEquals(0, reservationRepository.count());
+        assertFalse(reservationService.isSlotAvailableForNewReservation(null, LocalDate.now().plusDays(6), LocalDate.now().plusDays(6)));
+        assertNotNull(reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(8), LocalDate.now().plusDays(9))));
+    }
+
+    /**
+     * Test: an update is applied at the version the client read, and rejected once that version is stale.
+     */
+    @Test
+    public void testUpdateHonorsExpectedVersion() throws Exception {
+        String id = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(10), LocalDate.now().plusDays(11)));
+        Long version = reservationService.retrieveReservation(id).orElseThrow().getVersion();
+
+        ReservationRequest update = new ReservationRequest();
+        update.setFirstName("Natalie");
+        Reservation updated = reservationService.updateReservation(id, update, version);
+        assertEquals(version + 1, updated.getVersion());
+        assertThrows(PreconditionFailedException.class, () -> reservationService.updateReservation(id, update, version));
+
+        String eTag = mockMvc.perform(get("/api/v1/reservation/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("\"" + updated.getVersion() + "\"", eTag);
+        mockMvc.perform(patch("/api/v1/reservation/" + id).header(HttpHeaders.IF_MATCH, "\"" + version + "\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"Nat\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/v1/reservation/" + id).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"Nat\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (updated.getVersion() + 1) + "\""));
+    }
+}
@@ -0,0 +1,85 @@
+package com.campsite;
+
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.model.CacheStatistics;
+import com.campsite.model.Reservation;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReservationCacheTest extends ReservationTestSupport {
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Test: repeated lookups are served from the cache, and an update is visible to the next lookup.
+     */
+    @Test
+    public void testLookupsAreCachedAndUpdatesInvalidate() {
+        String id = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        CacheStatistics before = reservationService.retrieveReservationCacheStatistics();
+
+        Reservation first = reservationService.retrieveReservation(id).orElseThrow();
+        Reservation second = reservationService.retrieveReservation(id).orElseThrow();
+        CacheStatistics after = reservationService.retrieveReservationCacheStatistics();
+        assertSame(first, second);
+        assertEquals(before.getMissCount() + 1, after.getMissCount());
+        assertEquals(before.getHitCount() + 1, after.getHitCount());
+
+        ReservationRequest update = new ReservationRequest();
+        update.setCheckoutDate(LocalDate.now().plusDays(3));
+        reservationService.updateReservation(id, update);
+        assertEquals(LocalDate.now().plusDays(3), reservationService.retrieveReservation(id).orElseThrow().getCheckoutDate());
+    }
+
+    /**
+     * Test: a cancelled reservation is never returned once the cancel committed.
+     */
+    @Test
+    public void testCancelledReservationIsNotReturned() {
+        String id = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(5), LocalDate.now().plusDays(6)));
+        assertTrue(reservationService.retrieveReservation(id).isPresent());
+
+        reservationService.cancelReservation(id);
+        assertFalse(reservationService.retrieveReservation(id).isPresent());
+        assertFalse(reservationService.retrieveReservation(id).isPresent());
+    }
+
+    /**
+     * Test: an unchanged availability calendar is answered with 304, and a new reservation changes its ETag.
+     */
+    @Test
+    public void testAvailabilityCalendarIsRevalidatedWithETag() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/v1/availabilities"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value(LocalDate.now().plusDays(1).toString()))
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        mockMvc.perform(get("/api/v1/availabilities").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        MvcResult changed = mockMvc.perform(get("/api/v1/availabilities").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value(LocalDate.now().plusDays(3).toString()))
+                .andReturn();
+        assertNotEquals(eTag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+}
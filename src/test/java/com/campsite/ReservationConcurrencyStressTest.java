@@ -0,0 +1,140 @@
+package com.campsite;
+
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.exceptions.NoAvailabilityException;
+import com.campsite.model.DateRange;
+import com.campsite.model.Status;
+import com.campsite.persistence.entity.ReservationEntity;
+import com.campsite.persistence.repository.ReservationRepository;
+import com.campsite.service.SiteService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@SpyBean(ReservationRepository.class)
+public class ReservationConcurrencyStressTest extends ReservationTestSupport {
+    @Autowired
+    private SiteService siteService;
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Test: many threads booking random overlapping periods never double book a day.
+     */
+    @Test
+    public void testOverlappingCreateRequestsNeverDoubleBook() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        final Random random = new Random(42);
+        for (int i = 0; i < 400; i++) {
+            LocalDate checkinDate = LocalDate.now().plusDays(1 + random.nextInt(28));
+            LocalDate checkoutDate = checkinDate.plusDays(1 + random.nextInt(3));
+            executor.execute(() -> {
+                try {
+                    reservationService.createReservation(createReservationRequest(checkinDate, checkoutDate));
+                } catch (NoAvailabilityException e) {
+                    // expected for the requests that lose the race
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        List<ReservationEntity> reservations = reservationRepository.findAll().stream()
+                .filter(reservation -> Status.ACTIVE.name().equals(reservation.getStatus()))
+                .collect(Collectors.toList());
+        assertFalse(reservations.isEmpty());
+        for (long day = LocalDate.now().plusDays(1).toEpochDay(); day <= LocalDate.now().plusDays(32).toEpochDay(); day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            long bookings = reservations.stream()
+                    .filter(reservation -> !date.isBefore(reservation.getCheckinDate()) && !date.isAfter(reservation.getCheckoutDate()))
+                    .count();
+            assertTrue(bookings <= 1, "Date " + date + " is booked " + bookings + " times.");
+            assertEquals(bookings == 1, occupancyIndex.countFreeUnits(siteService.getDefaultSiteId(), date) == 0, "Occupancy index disagrees for " + date);
+        }
+    }
+
+    /**
+     * Test: a booking for disjoint dates completes while another booking is still in flight,
+     * and an overlapping booking is rejected meanwhile.
+     */
+    @Test
+    public void testDisjointCreateRequestsProceedInParallel() throws Exception {
+        final LocalDate blockedCheckinDate = LocalDate.now().plusDays(2);
+        final CountDownLatch persisting = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            ReservationEntity reservation = invocation.getArgument(0);
+            if (blockedCheckinDate.equals(reservation.getCheckinDate())) {
+                persisting.countDown();
+                resume.await(1, TimeUnit.MINUTES);
+            }
+            entityManager.persist(reservation);
+            entityManager.flush();
+            return reservation;
+        }).when(reservationRepository).saveAndFlush(any());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> blocked = executor.submit(() -> reservationService.createReservation(
+                    createReservationRequest(blockedCheckinDate, blockedCheckinDate.plusDays(2))));
+            assertTrue(persisting.await(30, TimeUnit.SECONDS));
+
+            Future<String> disjoint = executor.submit(() -> reservationService.createReservation(
+                    createReservationRequest(LocalDate.now().plusDays(10), LocalDate.now().plusDays(12))));
+            assertNotNull(disjoint.get(30, TimeUnit.SECONDS));
+            assertThrows(NoAvailabilityException.class, () -> reservationService.createReservation(
+                    createReservationRequest(LocalDate.now().plusDays(3), LocalDate.now().plusDays(5))));
+
+            resume.countDown();
+            assertNotNull(blocked.get(30, TimeUnit.SECONDS));
+        } finally {
+            resume.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(2, reservationRepository.findAll().size());
+    }
+
+    /**
+     * Test: the available ranges are the maximal runs of the available dates.
+     */
+    @Test
+    public void testAvailableRangesMatchAvailableDates() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        reservationService.createReservation(createReservationRequest(tomorrow.plusDays(2), tomorrow.plusDays(3)));
+        reservationService.createReservation(createReservationRequest(tomorrow.plusDays(9), tomorrow.plusDays(11)));
+
+        List<DateRange> ranges = reservationService.findAvailableRanges(null, null, null);
+        List<LocalDate> dates = reservationService.findAvailableDates(null, null, null);
+        assertEquals(3, ranges.size());
+        assertEquals(tomorrow, ranges.get(0).getStartDate());
+        assertEquals(tomorrow.plusDays(1), ranges.get(0).getEndDate());
+        assertEquals(tomorrow.plusDays(4), ranges.get(1).getStartDate());
+        assertEquals(tomorrow.plusDays(8), ranges.get(1).getEndDate());
+        assertEquals(tomorrow.plusDays(12), ranges.get(2).getStartDate());
+        assertEquals(dates.get(dates.size() - 1), ranges.get(2).getEndDate());
+        assertEquals(dates, ranges.stream()
+                .flatMap(range -> range.getStartDate().datesUntil(range.getEndDate().plusDays(1)))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,190 @@
+package com.campsite;
+
+import com.campsite.controller.utils.ReservationRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReservationControllerTest extends ReservationTestSupport {
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Test: the pages follow each other through the Link header, which the last page does not have.
+     */
+    @Test
+    public void testPagesAreLinkedUntilTheLastOne() throws Exception {
+        List<String> ids = createReservations(3);
+
+        String next = mockMvc.perform(get("/api/v1/reservation/").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].externalIdentifier").value(ids.get(0)))
+                .andExpect(jsonPath("$[1].externalIdentifier").value(ids.get(1)))
+                .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+        assertNotNull(next);
+        assertTrue(next.endsWith(">; rel=\"next\""));
+
+        mockMvc.perform(get(next.substring(1, next.indexOf('>'))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].externalIdentifier").value(ids.get(2)))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    /**
+     * Test: a full last page still links to the next one, which is empty and has no Link header.
+     */
+    @Test
+    public void testFullLastPageLinksToAnEmptyPage() throws Exception {
+        createReservations(2);
+
+        String next = mockMvc.perform(get("/api/v1/reservation/").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+        assertNotNull(next);
+
+        mockMvc.perform(get(next.substring(1, next.indexOf('>'))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+        mockMvc.perform(get("/api/v1/reservation/"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    /**
+     * Test: a cursor that is not an id, or a page size out of bounds, is a bad request.
+     */
+    @Test
+    public void testInvalidCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/api/v1/reservation/").param("after", "abc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/reservation/").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/reservation/").param("limit", "100000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test: the export streams one JSON object per line.
+     */
+    @Test
+    public void testExportAsNdjson() throws Exception {
+        List<String> ids = createReservations(2);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/reservation/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].startsWith("{") && lines[i].endsWith("}"));
+            assertTrue(lines[i].contains("\"externalIdentifier\":\"" + ids.get(i) + "\""));
+        }
+    }
+
+    /**
+     * Test: the CSV export starts with a header line, and quotes the values containing a comma.
+     */
+    @Test
+    public void testExportAsCsv() throws Exception {
+        List<String> ids = createReservations(2);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/reservation/export").param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("id,externalIdentifier,"));
+        for (int i = 1; i < lines.length; i++) {
+            assertTrue(lines[i].contains("," + ids.get(i - 1) + ","));
+            assertTrue(lines[i].contains(",\"V, Jr\","));
+        }
+    }
+
+    /**
+     * Test: every request of a batch gets its own result, and the accepted ones are booked even when others are rejected.
+     */
+    @Test
+    public void testBatchReportsEveryRequest() throws Exception {
+        String body = "[" + String.join(",",
+                createReservationBody(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)),
+                createReservationBody(LocalDate.now().plusDays(1), LocalDate.now().plusDays(3)),
+                createReservationBody(LocalDate.now().plusDays(6), LocalDate.now().plusDays(5)),
+                createReservationBody(LocalDate.now().plusDays(5), LocalDate.now().plusDays(6))) + "]";
+
+        mockMvc.perform(post("/api/v1/reservation/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].externalIdentifier").isNotEmpty())
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                // the second request conflicts with the first one of the same batch
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].externalIdentifier").doesNotExist())
+                .andExpect(jsonPath("$[1].error").isNotEmpty())
+                .andExpect(jsonPath("$[2].index").value(2))
+                .andExpect(jsonPath("$[2].externalIdentifier").doesNotExist())
+                .andExpect(jsonPath("$[2].error").isNotEmpty())
+                .andExpect(jsonPath("$[3].index").value(3))
+                .andExpect(jsonPath("$[3].externalIdentifier").isNotEmpty())
+                .andExpect(jsonPath("$[3].error").doesNotExist());
+
+        assertEquals(2, reservationRepository.count());
+        mockMvc.perform(post("/api/v1/reservation/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<String> createReservations(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDate checkinDate = LocalDate.now().plusDays(1 + 2L * i);
+            ReservationRequest request = createReservationRequest(checkinDate, checkinDate.plusDays(1));
+            request.setLastName("V, Jr");
+            ids.add(reservationService.createReservation(request));
+        }
+        return ids;
+    }
+
+    private String createReservationBody(LocalDate checkinDate, LocalDate checkout) {
+        return "{\"firstName\":\"Nat\",\"lastName\":\"V\",\"email\":\"n.v2@gm.com\",\"checkinDate\":\"" + checkinDate
+                + "\",\"checkoutDate\":\"" + checkout + "\",\"numOfGuests\":4}";
+    }
+}
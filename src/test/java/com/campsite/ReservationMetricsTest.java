@@ -0,0 +1,62 @@
+package com.campsite;
+
+import com.campsite.common.metrics.BookingMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReservationMetricsTest extends ReservationTestSupport {
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Test: every phase of a booking is timed.
+     */
+    @Test
+    public void testBookingPhasesAreTimed() {
+        long persisted = phaseCount("create", "persist");
+        reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+
+        assertTrue(phaseCount("create", "validation") > 0);
+        assertTrue(phaseCount("create", "claim") > 0);
+        assertEquals(persisted + 1, phaseCount("create", "persist"));
+    }
+
+    /**
+     * Test: errors answered by the exception handler are counted per exception.
+     */
+    @Test
+    public void testErrorsAreCounted() throws Exception {
+        double notFound = errorCount("ResourceNotFoundException");
+        mockMvc.perform(get("/api/v1/reservation/UNKNOWN")).andExpect(status().isNotFound());
+        assertEquals(notFound + 1, errorCount("ResourceNotFoundException"));
+    }
+
+    private long phaseCount(String operation, String phase) {
+        Timer timer = meterRegistry.find(BookingMetrics.PHASE_TIMER).tag("operation", operation).tag("phase", phase).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double errorCount(String exception) {
+        Counter counter = meterRegistry.find(BookingMetrics.ERROR_COUNTER).tag("exception", exception).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,71 @@
+package com.campsite;
+
+import com.campsite.persistence.entity.ReservationEntity;
+import org.junit.Test;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.campsite.ReservationOverlapQueryTest$CapturingStatementInspector")
+public class ReservationOverlapQueryTest extends ReservationTestSupport {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Test: a reservation spanning the whole requested period overlaps it.
+     */
+    @Test
+    public void testSpanningReservationIsFound() {
+        String id = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(4)));
+
+        List<ReservationEntity> reservations = reservationRepository.findReservationsForGivenPeriod(LocalDate.now().plusDays(2), LocalDate.now().plusDays(3));
+        assertEquals(1, reservations.size());
+        assertEquals(id, reservations.get(0).getExternalIdentifier());
+    }
+
+    /**
+     * Test: the statement the repository sends for the overlap query is planned on the (status, checkin_date, checkout_date) index.
+     */
+    @Test
+    public void testOverlapQueryUsesPeriodIndex() {
+        CapturingStatementInspector.statements.clear();
+        reservationRepository.findReservationsForGivenPeriod(LocalDate.now(), LocalDate.now().plusMonths(1));
+        List<String> statements = CapturingStatementInspector.statements.stream()
+                .filter(statement -> statement.toLowerCase().contains("from reservations"))
+                .collect(Collectors.toList());
+        assertEquals(1, statements.size(), statements::toString);
+
+        // every parameter bound to the same date, the plan does not depend on which one is which
+        String sql = statements.get(0);
+        Object[] dates = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        Arrays.fill(dates, LocalDate.now());
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, dates);
+        assertTrue(plan.toUpperCase().contains("IDX_RESERVATIONS_STATUS_PERIOD"), plan);
+    }
+
+    /**
+     * Keeps the SQL statements Hibernate prepares, for the test to plan them.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+        private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
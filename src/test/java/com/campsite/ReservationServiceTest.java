@@ -1,13 +1,13 @@
 package com.campsite;
 
 import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.model.Reservation;
+import com.campsite.model.Status;
 import com.campsite.persistence.entity.ReservationEntity;
 import com.campsite.persistence.repository.ReservationRepository;
-import com.campsite.service.impl.ReservationServiceImpl;
 import org.junit.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.runner.RunWith;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.SpyBean;
@@ -27,17 +27,12 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
-
 @ExtendWith(OutputCaptureExtension.class)
 @RunWith(SpringRunner.class)
 @SpringBootTest
 @AutoConfigureMockMvc
-public class ReservationServiceTest {
-    @Autowired
-    private ReservationServiceImpl reservationService;
-    @SpyBean
-    private ReservationRepository reservationRepository;
-
+@SpyBean(ReservationRepository.class)
+public class ReservationServiceTest extends ReservationTestSupport {
     /**
     *
     * Test: handle concurrent requests to reservations for the campsite.
@@ -70,14 +65,39 @@ public class ReservationServiceTest {
         );
     }
 
-    private ReservationRequest createReservationRequest(LocalDate checkinDate, LocalDate checkout) {
-        ReservationRequest re1 = new ReservationRequest();
-        re1.setFirstName("Nat");
-        re1.setLastName("V");
-        re1.setEmail("n.v2@gm.com");
-        re1.setCheckinDate(checkinDate);
-        re1.setCheckoutDate(checkout);
-        re1.setNumOfGuests(4);
-        return re1;
+    /**
+    *
+    * Test: a partial update only changes the fields present in the request, the stored values of the others, the number
+    * of guests included, are left untouched.
+     * */
+    @Test
+    public void testPartialUpdateSkipsNullFields() {
+
+        // create reservation for 2 guests
+        ReservationRequest request = createReservationRequest(LocalDate.now().plusDays(10), LocalDate.now().plusDays(12));
+        request.setNumOfGuests(2);
+        String id = reservationService.createReservation(request);
+
+        // update only the email
+        ReservationRequest update = new ReservationRequest();
+        update.setEmail("nat.v@gm.com");
+        Reservation updated = reservationService.updateReservation(id, update);
+
+        // then fetch the stored reservation
+        ReservationEntity stored = reservationRepository.findActiveReservationByExternalIdentifier(id);
+
+        assertAll(
+                () -> assertEquals("nat.v@gm.com", updated.getEmail()),
+                () -> assertEquals("nat.v@gm.com", stored.getEmail()),
+                () -> assertEquals("Nat", stored.getFirstName()),
+                () -> assertEquals("V", stored.getLastName()),
+                () -> assertEquals(LocalDate.now().plusDays(10), stored.getCheckinDate()),
+                () -> assertEquals(LocalDate.now().plusDays(12), stored.getCheckoutDate()),
+                () -> assertEquals(2, stored.getNumOfGuests()),
+                () -> assertEquals(2, updated.getNumOfGuests()),
+                () -> assertEquals(Status.ACTIVE.name(), stored.getStatus()),
+                () -> assertEquals(updated.getSiteId(), stored.getSiteId()),
+                () -> assertEquals(updated.getUnitId(), stored.getUnitId())
+        );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package com.campsite;
+
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.persistence.repository.ReservationRepository;
+import com.campsite.service.impl.ReservationServiceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+
+/**
+ * Base of the tests booking through the application context: every test starts and ends without reservations, on an
+ * occupancy index reloaded from the empty table.
+ */
+public abstract class ReservationTestSupport {
+    @Autowired
+    protected ReservationServiceImpl reservationService;
+    @Autowired
+    protected ReservationRepository reservationRepository;
+
+    @Before
+    @After
+    public void resetReservations() {
+        resetDependencies();
+        reservationRepository.deleteAll();
+        reservationService.loadOccupancyIndex();
+    }
+
+    /**
+     * Settles or clears what depends on the reservations, before they are deleted. Nothing by default.
+     */
+    protected void resetDependencies() {
+    }
+
+    /**
+     * The reservation request of the test guest, for 4 guests.
+     */
+    public static ReservationRequest createReservationRequest(LocalDate checkinDate, LocalDate checkoutDate) {
+        ReservationRequest request = new ReservationRequest();
+        request.setFirstName("Nat");
+        request.setLastName("V");
+        request.setEmail("n.v2@gm.com");
+        request.setCheckinDate(checkinDate);
+        request.setCheckoutDate(checkoutDate);
+        request.setNumOfGuests(4);
+        return request;
+    }
+}
@@ -0,0 +1,133 @@
+package com.campsite;
+
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.controller.utils.StayRequest;
+import com.campsite.exceptions.NoAvailabilityException;
+import com.campsite.exceptions.ResourceNotFoundException;
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.model.Hold;
+import com.campsite.model.Status;
+import com.campsite.model.WaitlistEntry;
+import com.campsite.model.WaitlistStatus;
+import com.campsite.persistence.entity.ReservationEntity;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"waitlist.hold.time-to-live=1s", "waitlist.timer.tick=10ms", "waitlist.timer.slots=64"})
+public class WaitlistTest extends ReservationTestSupport {
+    private static final LocalDate CHECKIN_DATE = LocalDate.now().plusDays(3);
+    private static final LocalDate CHECKOUT_DATE = LocalDate.now().plusDays(4);
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    /**
+     * Test: days released by a cancellation are held for the first entry of the waitlist, which books them.
+     */
+    @Test
+    public void testReleasedDaysAreHeldForTheWaitlist() {
+        List<String> ids = bookEveryUnit();
+        WaitlistEntry entry = reservationService.joinWaitlist(createStayRequest());
+        assertEquals(WaitlistStatus.WAITING, entry.getStatus());
+
+        reservationService.cancelReservation(ids.get(0));
+        entry = reservationService.retrieveWaitlistEntry(entry.getId()).orElseThrow();
+        assertEquals(WaitlistStatus.HELD, entry.getStatus());
+        assertFalse(reservationService.isSlotAvailableForNewReservation(null, CHECKIN_DATE, CHECKOUT_DATE));
+
+        ReservationRequest request = createReservationRequest(CHECKIN_DATE, CHECKOUT_DATE);
+        request.setHoldId(entry.getHold().getId());
+        assertNotNull(reservationService.createReservation(request));
+        assertEquals(WaitlistStatus.BOOKED, reservationService.retrieveWaitlistEntry(entry.getId()).orElseThrow().getStatus());
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.createReservation(request));
+    }
+
+    /**
+     * Test: an expired hold is offered to the next entry, and the days are free again once it is released.
+     */
+    @Test
+    public void testExpiredHoldsAreOfferedToTheNextEntry() throws InterruptedException {
+        List<String> ids = bookEveryUnit();
+        WaitlistEntry first = reservationService.joinWaitlist(createStayRequest());
+        WaitlistEntry second = reservationService.joinWaitlist(createStayRequest());
+        reservationService.cancelReservation(ids.get(0));
+        assertEquals(WaitlistStatus.HELD, reservationService.retrieveWaitlistEntry(first.getId()).orElseThrow().getStatus());
+        assertEquals(WaitlistStatus.WAITING, reservationService.retrieveWaitlistEntry(second.getId()).orElseThrow().getStatus());
+
+        assertTrue(awaitStatus(first.getId(), WaitlistStatus.EXPIRED));
+        WaitlistEntry held = reservationService.retrieveWaitlistEntry(second.getId()).orElseThrow();
+        assertEquals(WaitlistStatus.HELD, held.getStatus());
+
+        reservationService.leaveWaitlist(second.getId());
+        assertEquals(WaitlistStatus.LEFT, reservationService.retrieveWaitlistEntry(second.getId()).orElseThrow().getStatus());
+        assertTrue(reservationService.isSlotAvailableForNewReservation(null, CHECKIN_DATE, CHECKOUT_DATE));
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.releaseHold(held.getHold().getId()));
+    }
+
+    /**
+     * Test: held days are claimed again when the occupancy index is reloaded, and a hold whose days are booked in the
+     * table ends.
+     */
+    @Test
+    public void testHoldsAreReclaimedAfterAReload() {
+        Hold kept = reservationService.placeHold(createStayRequest());
+        StayRequest laterStay = createStayRequest();
+        laterStay.setCheckinDate(CHECKIN_DATE.plusDays(7));
+        laterStay.setCheckoutDate(CHECKOUT_DATE.plusDays(7));
+        Hold overbooked = reservationService.placeHold(laterStay);
+        reservationRepository.save(new ReservationEntity(null, "Nat", "V", "n.v2@gm.com", overbooked.getSiteId(), overbooked.getUnitId(),
+                laterStay.getCheckinDate(), laterStay.getCheckoutDate(), Status.ACTIVE.name(), 4, new Date(), "OVERBOOKED", null));
+
+        reservationService.loadOccupancyIndex();
+        assertTrue(occupancyIndex.isOccupied(kept.getUnitId(), CHECKIN_DATE));
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.releaseHold(overbooked.getId()));
+        assertTrue(occupancyIndex.isOccupied(overbooked.getUnitId(), laterStay.getCheckinDate()));
+
+        ReservationRequest request = createReservationRequest(CHECKIN_DATE, CHECKOUT_DATE);
+        request.setHoldId(kept.getId());
+        assertNotNull(reservationService.createReservation(request));
+    }
+
+    private List<String> bookEveryUnit() {
+        List<String> ids = new ArrayList<>();
+        try {
+            while (true) {
+                ids.add(reservationService.createReservation(createReservationRequest(CHECKIN_DATE, CHECKOUT_DATE)));
+            }
+        } catch (NoAvailabilityException e) {
+            // every unit is booked
+        }
+        assertFalse(ids.isEmpty());
+        return ids;
+    }
+
+    private boolean awaitStatus(String entryId, WaitlistStatus status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (reservationService.retrieveWaitlistEntry(entryId).orElseThrow().getStatus() == status) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private StayRequest createStayRequest() {
+        StayRequest request = new StayRequest();
+        request.setCheckinDate(CHECKIN_DATE);
+        request.setCheckoutDate(CHECKOUT_DATE);
+        return request;
+    }
+}
@@ -0,0 +1,77 @@
+package com.campsite.common.generator.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeOrderedExternalIdentifierGeneratorImplTest {
+    private static final long NOW = TimeOrderedExternalIdentifierGeneratorImpl.EPOCH_MILLIS + 123_456_789L;
+
+    /**
+     * Test: several nodes, each shared by several threads, never generate the same identifier,
+     * even with a frozen clock that makes every node run through millions of sequence values.
+     */
+    @Test
+    public void testNoCollisionsAcrossNodes() throws Exception {
+        final int nodes = 8;
+        final int threadsPerNode = 4;
+        final int idsPerThread = 50_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(nodes * threadsPerNode);
+        final Set<String> identifiers = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            TimeOrderedExternalIdentifierGeneratorImpl generator = new TimeOrderedExternalIdentifierGeneratorImpl(node * 127, () -> NOW);
+            for (int thread = 0; thread < threadsPerNode; thread++) {
+                futures.add(executor.submit(() -> {
+                    String previous = "";
+                    for (int i = 0; i < idsPerThread; i++) {
+                        String identifier = generator.getNext();
+                        assertEquals(16, identifier.length());
+                        assertTrue(identifier.compareTo(previous) > 0);
+                        identifiers.add(identifier);
+                        previous = identifier;
+                    }
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        assertEquals(nodes * threadsPerNode * idsPerThread, identifiers.size());
+    }
+
+    /**
+     * Test: identifiers keep increasing when the clock goes back.
+     */
+    @Test
+    public void testIdentifiersIncreaseWhenClockGoesBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedExternalIdentifierGeneratorImpl generator = new TimeOrderedExternalIdentifierGeneratorImpl(1, clock::get);
+        String first = generator.getNext();
+        clock.addAndGet(-60_000);
+        String second = generator.getNext();
+        clock.addAndGet(120_000);
+        String third = generator.getNext();
+        assertTrue(second.compareTo(first) > 0);
+        assertTrue(third.compareTo(second) > 0);
+        assertTrue(first.startsWith("RSV"));
+    }
+
+    @Test
+    public void testNodeIdOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedExternalIdentifierGeneratorImpl(TimeOrderedExternalIdentifierGeneratorImpl.MAX_NODE_ID + 1, false));
+    }
+
+    @Test
+    public void testNodeIdIsRequiredInClusterMode() {
+        assertThrows(IllegalStateException.class, () -> new TimeOrderedExternalIdentifierGeneratorImpl(null, true));
+        assertTrue(new TimeOrderedExternalIdentifierGeneratorImpl(null, false).getNext().startsWith("RSV"));
+    }
+}
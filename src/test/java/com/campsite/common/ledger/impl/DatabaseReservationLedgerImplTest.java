@@ -0,0 +1,73 @@
+package com.campsite.common.ledger.impl;
+
+import com.campsite.ReservationTestSupport;
+import com.campsite.common.occupancy.OccupancyIndex;
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.persistence.repository.OccupancySnapshotRepository;
+import com.campsite.persistence.repository.ReservationEventRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"occupancy.ledger.enabled=true", "occupancy.ledger.snapshot-interval=1h", "occupancy.ledger.grace=0s"})
+public class DatabaseReservationLedgerImplTest extends ReservationTestSupport {
+    @Autowired
+    private DatabaseReservationLedgerImpl reservationLedger;
+    @Autowired
+    private ReservationEventRepository reservationEventRepository;
+    @Autowired
+    private OccupancySnapshotRepository occupancySnapshotRepository;
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    @Override
+    protected void resetDependencies() {
+        reservationEventRepository.deleteAllInBatch();
+        occupancySnapshotRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Test: the occupancy index rebuilt from the snapshot and the events after it matches the reservations,
+     * before and after taking a new snapshot.
+     */
+    @Test
+    public void testOccupancyIsRebuiltFromSnapshotAndEvents() throws InterruptedException {
+        String moved = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        String cancelled = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(5), LocalDate.now().plusDays(6)));
+        long movedUnitId = reservationRepository.findActiveReservationByExternalIdentifier(moved).getUnitId();
+        long cancelledUnitId = reservationRepository.findActiveReservationByExternalIdentifier(cancelled).getUnitId();
+
+        ReservationRequest update = new ReservationRequest();
+        update.setCheckinDate(LocalDate.now().plusDays(2));
+        update.setCheckoutDate(LocalDate.now().plusDays(3));
+        reservationService.updateReservation(moved, update);
+        reservationService.cancelReservation(cancelled);
+        assertEquals(4, reservationEventRepository.count());
+
+        reservationService.loadOccupancyIndex();
+        assertOccupancy(movedUnitId, cancelledUnitId);
+
+        // events are snapshotted once strictly older than the grace
+        Thread.sleep(50);
+        reservationLedger.snapshot();
+        assertEquals(1, occupancySnapshotRepository.count());
+        assertEquals(reservationEventRepository.findLastEventId(), occupancySnapshotRepository.findFirstByOrderByLastEventIdDesc().getLastEventId());
+        reservationService.loadOccupancyIndex();
+        assertOccupancy(movedUnitId, cancelledUnitId);
+    }
+
+    private void assertOccupancy(long movedUnitId, long cancelledUnitId) {
+        assertFalse(occupancyIndex.isOccupied(movedUnitId, LocalDate.now().plusDays(1)));
+        assertTrue(occupancyIndex.isOccupied(movedUnitId, LocalDate.now().plusDays(2)));
+        assertTrue(occupancyIndex.isOccupied(movedUnitId, LocalDate.now().plusDays(3)));
+        assertFalse(occupancyIndex.isOccupied(cancelledUnitId, LocalDate.now().plusDays(5)));
+        assertFalse(occupancyIndex.isOccupied(cancelledUnitId, LocalDate.now().plusDays(6)));
+    }
+}
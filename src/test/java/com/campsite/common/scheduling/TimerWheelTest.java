@@ -0,0 +1,69 @@
+package com.campsite.common.scheduling;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimerWheelTest {
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    /**
+     * Test: thousands of tasks scheduled concurrently, some beyond one turn of the wheel, all run once, never before
+     * their deadline and close after it, and the cancelled ones never run.
+     */
+    @Test
+    public void testConcurrentTimeoutsExpireOnTime() throws Exception {
+        final int threads = 8;
+        final int timeoutsPerThread = 1_000;
+        final ConcurrentMap<Integer, Long> latenessNanos = new ConcurrentHashMap<>();
+        final AtomicInteger cancelledRuns = new AtomicInteger();
+        final CountDownLatch expired = new CountDownLatch(threads * timeoutsPerThread / 2);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (TimerWheel timerWheel = new TimerWheel("test-timer-wheel", TICK, 64)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                final int firstId = thread * timeoutsPerThread;
+                futures.add(executor.submit(() -> {
+                    for (int id = firstId; id < firstId + timeoutsPerThread; id++) {
+                        final int timeoutId = id;
+                        // up to 1.5 s, i.e. more than two turns of a wheel of 64 slots of 10 ms
+                        final Duration delay = Duration.ofMillis(ThreadLocalRandom.current().nextInt(1_500));
+                        final long deadline = System.nanoTime() + delay.toNanos();
+                        boolean cancel = timeoutId % 2 == 1;
+                        TimerWheel.Timeout timeout = timerWheel.schedule(() -> {
+                            if (cancel) {
+                                cancelledRuns.incrementAndGet();
+                                return;
+                            }
+                            assertNull(latenessNanos.put(timeoutId, System.nanoTime() - deadline));
+                            expired.countDown();
+                        }, delay);
+                        if (cancel) {
+                            assertTrue(timeout.cancel());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertTrue(expired.await(10, TimeUnit.SECONDS));
+            Thread.sleep(TICK.toMillis() * 4);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * timeoutsPerThread / 2, latenessNanos.size());
+        assertEquals(0, cancelledRuns.get());
+        for (long lateness : latenessNanos.values()) {
+            assertTrue(lateness >= 0, "A task ran " + -lateness + " ns early.");
+            assertTrue(lateness < TimeUnit.MILLISECONDS.toNanos(250), "A task ran " + lateness + " ns late.");
+        }
+    }
+}
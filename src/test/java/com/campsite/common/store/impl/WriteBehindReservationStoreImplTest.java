@@ -0,0 +1,212 @@
+package com.campsite.common.store.impl;
+
+import com.campsite.ReservationTestSupport;
+import com.campsite.common.store.ReservationJournal;
+import com.campsite.controller.utils.ReservationRequest;
+import com.campsite.model.Reservation;
+import com.campsite.persistence.entity.ReservationEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"persistence.mode=write-behind", "persistence.write-behind.journal-directory=target/test-journal",
+        "persistence.write-behind.drain-interval=1h", "persistence.write-behind.max-attempts=2"})
+public class WriteBehindReservationStoreImplTest extends ReservationTestSupport {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private WriteBehindReservationStoreImpl reservationStore;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    protected void resetDependencies() {
+        reservationStore.flush();
+    }
+
+    /**
+     * Test: saved reservations are read back before they reach the table, where only their latest state is written.
+     */
+    @Test
+    public void testPendingReservationsAreReadBackAndDrainedOnce() throws IOException {
+        String id = reservationService.createReservation(createReservationRequest(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        assertEquals(0, countRows(id));
+        assertEquals("Nat", reservationService.retrieveReservation(id).orElseThrow().getFirstName());
+
+        ReservationRequest update = new ReservationRequest();
+        update.setFirstName("Natalie");
+        Reservation updated = reservationService.updateReservation(id, update);
+        assertEquals(1L, updated.getVersion());
+        assertEquals("Natalie", reservationService.retrieveReservation(id).orElseThrow().getFirstName());
+        assertTrue(journalSize() > 0);
+
+        reservationStore.flush();
+        Map<String, Object> row = jdbcTemplate.queryForMap("select first_name, status, version from reservations where external_identifier = ?", id);
+        assertEquals("Natalie", row.get("first_name"));
+        assertEquals("ACTIVE", row.get("status"));
+        assertEquals(1L, ((Number) row.get("version")).longValue());
+        assertEquals(0, journalSize());
+
+        reservationService.cancelReservation(id);
+        assertTrue(reservationService.retrieveReservation(id).isEmpty());
+        assertTrue(reservationService.isSlotAvailableForNewReservation(null, LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        reservationStore.flush();
+        assertEquals("CANCELLED", jdbcTemplate.queryForObject("select status from reservations where external_identifier = ?", String.class, id));
+    }
+
+    /**
+     * Test: the journal reads back every appended record after a crash, up to a torn record at its end.
+     */
+    @Test
+    public void testJournalIsRecoveredUpToATornRecord() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        try (ReservationJournal journal = new ReservationJournal("test-journal-writer", directory.toPath(), 1024)) {
+            assertEquals(1, journal.append(List.of(createReservationEntity(1L, "A", 0L), createReservationEntity(2L, "B", 0L))));
+            assertEquals(3, journal.append(List.of(createReservationEntity(1L, "A", 1L))));
+        }
+        try (Stream<Path> segments = Files.list(directory.toPath())) {
+            Path segment = segments.filter(path -> path.toFile().length() > 0).findFirst().orElseThrow();
+            Files.write(segment, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+        }
+
+        try (ReservationJournal journal = new ReservationJournal("test-journal-writer", directory.toPath(), 1024)) {
+            List<ReservationJournal.Record> records = journal.recoveredRecords();
+            assertEquals(3, records.size());
+            assertEquals(3, records.get(2).getSequence());
+            assertEquals("A", records.get(2).getReservation().getExternalIdentifier());
+            assertEquals(1L, records.get(2).getReservation().getVersion());
+            assertEquals(4, journal.append(List.of(createReservationEntity(2L, "B", 1L))));
+        }
+    }
+
+    /**
+     * Test: a journal reopened empty, or after its records were truncated, goes on with new sequences and segments.
+     */
+    @Test
+    public void testJournalIsReopenedAfterTruncation() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        new ReservationJournal("test-journal-writer", directory.toPath(), 1024).close();
+        try (ReservationJournal journal = new ReservationJournal("test-journal-writer", directory.toPath(), 1024)) {
+            assertTrue(journal.recoveredRecords().isEmpty());
+            assertEquals(1, journal.append(List.of(createReservationEntity(1L, "A", 0L), createReservationEntity(2L, "B", 0L))));
+            journal.truncate(Long.MAX_VALUE);
+        }
+
+        try (ReservationJournal journal = new ReservationJournal("test-journal-writer", directory.toPath(), 1024)) {
+            assertTrue(journal.recoveredRecords().isEmpty());
+            assertEquals(3, journal.append(List.of(createReservationEntity(1L, "A", 1L))));
+            journal.truncate(Long.MAX_VALUE);
+            assertEquals(4, journal.append(List.of(createReservationEntity(2L, "B", 1L))));
+        }
+        try (ReservationJournal journal = new ReservationJournal("test-journal-writer", directory.toPath(), 1024)) {
+            assertEquals(1, journal.recoveredRecords().size());
+            assertEquals(4, journal.recoveredRecords().get(0).getSequence());
+            assertEquals(5, journal.append(List.of(createReservationEntity(1L, "A", 2L))));
+        }
+    }
+
+    /**
+     * Test: a reservation whose commit fails after it was journaled is neither read back nor written, nor recovered.
+     */
+    @Test
+    public void testReservationsOfAFailedCommitAreDiscarded() throws IOException {
+        ReservationEntity reservation = createReservationEntity(0L, "ROLLED-BACK", 0L);
+        reservation.setId(null);
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            reservationStore.save(reservation);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    throw new IllegalStateException("Commit failed");
+                }
+            });
+        }));
+        assertNull(reservationStore.findActive("ROLLED-BACK"));
+        reservationStore.flush();
+        assertEquals(0, countRows("ROLLED-BACK"));
+
+        File directory = temporaryFolder.newFolder();
+        try (ReservationJournal journal = new ReservationJournal("test-journal-writer", directory.toPath(), 1024)) {
+            journal.append(List.of(createReservationEntity(1L, "A", 0L)));
+            journal.discard(List.of("A"));
+        }
+        try (ReservationJournal journal = new ReservationJournal("test-journal-writer", directory.toPath(), 1024)) {
+            List<ReservationJournal.Record> records = journal.recoveredRecords();
+            assertEquals(2, records.size());
+            assertFalse(records.get(0).isDiscard());
+            assertTrue(records.get(1).isDiscard());
+            assertEquals("A", records.get(1).getReservation().getExternalIdentifier());
+        }
+    }
+
+    /**
+     * Test: a reservation the database rejects does not hold back the others of its batch, and is set aside after the
+     * maximum number of attempts.
+     */
+    @Test
+    public void testRejectedReservationsAreSetAside() throws IOException {
+        ReservationEntity accepted = createReservationEntity(0L, "ACCEPTED", 0L);
+        ReservationEntity rejected = createReservationEntity(0L, "REJECTED", 0L);
+        accepted.setId(null);
+        rejected.setId(null);
+        rejected.setFirstName("N".repeat(300));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> reservationStore.saveAll(List.of(accepted, rejected)));
+
+        reservationStore.flush();
+        assertEquals(1, countRows("ACCEPTED"));
+        assertNotNull(reservationStore.findActive("REJECTED"));
+        reservationStore.flush();
+        assertNull(reservationStore.findActive("REJECTED"));
+        assertEquals(0, countRows("REJECTED"));
+        assertEquals(1.0, meterRegistry.get(WriteBehindReservationStoreImpl.SET_ASIDE_COUNTER).counter().count());
+        assertEquals(2.0, meterRegistry.get(WriteBehindReservationStoreImpl.DRAIN_FAILURE_COUNTER).counter().count());
+        assertEquals(0, journalSize());
+        try (Stream<Path> segments = Files.list(Path.of("target/test-journal/rejected"))) {
+            assertTrue(segments.map(Path::toFile).mapToLong(File::length).sum() > 0);
+        }
+    }
+
+    private int countRows(String id) {
+        return jdbcTemplate.queryForObject("select count(*) from reservations where external_identifier = ?", Integer.class, id);
+    }
+
+    private long journalSize() throws IOException {
+        try (Stream<Path> segments = Files.list(Path.of("target/test-journal"))) {
+            return segments.map(Path::toFile).filter(File::isFile).mapToLong(File::length).sum();
+        }
+    }
+
+    private ReservationEntity createReservationEntity(long id, String externalIdentifier, long version) {
+        return new ReservationEntity(id, "Nat", "V", "n.v2@gm.com", 1L, 1L, LocalDate.now().plusDays(1), LocalDate.now().plusDays(2),
+                "ACTIVE", 4, new Date(), externalIdentifier, version);
+    }
+}
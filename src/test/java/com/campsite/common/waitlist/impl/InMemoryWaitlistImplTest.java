@@ -0,0 +1,95 @@
+package com.campsite.common.waitlist.impl;
+
+import com.campsite.common.occupancy.impl.DayOccupancyIndexImpl;
+import com.campsite.exceptions.ResourceNotFoundException;
+import com.campsite.model.Hold;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryWaitlistImplTest {
+    private static final long SITE_ID = 1;
+    private static final long UNIT_ID = 1;
+    private static final LocalDate CHECKIN_DATE = LocalDate.now().plusDays(3);
+    private static final LocalDate CHECKOUT_DATE = LocalDate.now().plusDays(4);
+    private static final Duration TIME_TO_LIVE = Duration.ofMillis(5);
+
+    private DayOccupancyIndexImpl occupancyIndex;
+    private InMemoryWaitlistImpl waitlist;
+
+    @Before
+    public void createWaitlist() {
+        occupancyIndex = new DayOccupancyIndexImpl(new SimpleMeterRegistry());
+        occupancyIndex.registerUnit(SITE_ID, UNIT_ID);
+        waitlist = new InMemoryWaitlistImpl(occupancyIndex, TIME_TO_LIVE, Duration.ofMillis(1), 64, false);
+    }
+
+    @After
+    public void stopWaitlist() {
+        waitlist.stopTimer();
+    }
+
+    /**
+     * Test: a hold released right as it expires frees its days, whether the release or the expiry ends it.
+     */
+    @Test
+    public void testHoldReleasedAtItsExpiryFreesItsDays() throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            Hold hold = placeHold();
+            awaitExpiry(i);
+            waitlist.release(hold.getId());
+            awaitAvailable();
+        }
+    }
+
+    /**
+     * Test: a hold taken right as it expires is either taken, its days then claimed by the caller, or has expired and
+     * freed its days.
+     */
+    @Test
+    public void testHoldTakenAtItsExpiryIsTakenOrFreesItsDays() throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            Hold hold = placeHold();
+            awaitExpiry(i);
+            try {
+                assertEquals(UNIT_ID, waitlist.take(hold.getId(), SITE_ID, CHECKIN_DATE, CHECKOUT_DATE));
+                Thread.sleep(TIME_TO_LIVE.toMillis() * 2);
+                assertTrue(occupancyIndex.isOccupied(UNIT_ID, CHECKIN_DATE));
+                occupancyIndex.release(UNIT_ID, CHECKIN_DATE, CHECKOUT_DATE);
+            } catch (ResourceNotFoundException e) {
+                // expired first
+            }
+            awaitAvailable();
+        }
+    }
+
+    private Hold placeHold() {
+        assertTrue(occupancyIndex.claim(UNIT_ID, CHECKIN_DATE, CHECKOUT_DATE));
+        return waitlist.hold(SITE_ID, UNIT_ID, CHECKIN_DATE, CHECKOUT_DATE);
+    }
+
+    /**
+     * Waits until around the expiry of a hold just placed, a little before or after it depending on the iteration.
+     */
+    private static void awaitExpiry(int iteration) {
+        long deadline = System.nanoTime() + TIME_TO_LIVE.toNanos() + TimeUnit.MICROSECONDS.toNanos(iteration % 20 * 100 - 1_000);
+        while (System.nanoTime() - deadline < 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void awaitAvailable() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!occupancyIndex.isAvailable(SITE_ID, CHECKIN_DATE, CHECKOUT_DATE)) {
+            assertTrue(System.nanoTime() < deadline, "The days of the hold are still claimed.");
+            Thread.sleep(1);
+        }
+    }
+}